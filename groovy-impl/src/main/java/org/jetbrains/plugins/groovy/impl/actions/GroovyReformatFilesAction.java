@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.actions;
+
+import consulo.annotation.component.ActionImpl;
+import consulo.annotation.component.ActionParentRef;
+import consulo.annotation.component.ActionRef;
+import consulo.annotation.component.ActionRefAnchor;
+import consulo.application.ReadAction;
+import consulo.application.progress.ProgressIndicator;
+import consulo.application.progress.ProgressManager;
+import consulo.application.progress.Task;
+import consulo.groovy.localize.GroovyLocalize;
+import consulo.language.psi.PsiDocumentManager;
+import consulo.language.psi.PsiFile;
+import consulo.language.psi.PsiManager;
+import consulo.module.content.ProjectFileIndex;
+import consulo.module.content.ProjectRootManager;
+import consulo.project.Project;
+import consulo.ui.annotation.RequiredUIAccess;
+import consulo.ui.ex.action.AnAction;
+import consulo.ui.ex.action.AnActionEvent;
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import org.jetbrains.plugins.groovy.GroovyFileType;
+import org.jetbrains.plugins.groovy.impl.formatter.GroovyParallelReformatter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Reformats the Groovy files of the selected files and directories with {@link GroovyParallelReformatter}
+ */
+@ActionImpl(
+    id = "Groovy.ReformatFiles",
+    parents = @ActionParentRef(
+        value = @ActionRef(id = "CodeFormatGroup"),
+        anchor = ActionRefAnchor.AFTER,
+        relatedToAction = @ActionRef(id = "ReformatCode")
+    )
+)
+public class GroovyReformatFilesAction extends AnAction {
+    public GroovyReformatFilesAction() {
+        super(GroovyLocalize.actionReformatGroovyFilesText(), GroovyLocalize.actionReformatGroovyFilesDescription());
+    }
+
+    @RequiredUIAccess
+    @Override
+    public void update(@Nonnull AnActionEvent e) {
+        VirtualFile[] roots = e.getData(VirtualFile.KEY_OF_ARRAY);
+        e.getPresentation().setEnabledAndVisible(e.getData(Project.KEY) != null && roots != null && roots.length > 0);
+    }
+
+    @RequiredUIAccess
+    @Override
+    public void actionPerformed(@Nonnull AnActionEvent e) {
+        Project project = e.getData(Project.KEY);
+        VirtualFile[] roots = e.getData(VirtualFile.KEY_OF_ARRAY);
+        if (project == null || roots == null) {
+            return;
+        }
+
+        PsiDocumentManager.getInstance(project).commitAllDocuments();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, GroovyLocalize.actionReformatGroovyFilesText().get(), true) {
+            @Override
+            public void run(@Nonnull ProgressIndicator indicator) {
+                Set<PsiFile> files = ReadAction.compute(() -> collectFiles(project, roots));
+                new GroovyParallelReformatter(project).reformat(files, indicator);
+            }
+        });
+    }
+
+    @Nonnull
+    private static Set<PsiFile> collectFiles(@Nonnull Project project, @Nonnull VirtualFile[] roots) {
+        ProjectFileIndex index = ProjectRootManager.getInstance(project).getFileIndex();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        Set<PsiFile> files = new LinkedHashSet<>();
+        for (VirtualFile root : roots) {
+            index.iterateContentUnderDirectory(root, file -> {
+                if (!file.isDirectory() && file.isWritable() && file.getFileType() == GroovyFileType.GROOVY_FILE_TYPE) {
+                    PsiFile psiFile = psiManager.findFile(file);
+                    if (psiFile != null) {
+                        files.add(psiFile);
+                    }
+                }
+                return true;
+            });
+        }
+        return files;
+    }
+}
@@ -56,7 +56,6 @@ import org.jetbrains.plugins.groovy.lang.psi.dataFlow.reachingDefs.ReachingDefin
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
 /**
@@ -108,16 +107,12 @@ public class UnusedDefInspection extends GroovyLocalInspectionBase {
                 if (!varInst.isWrite()) {
                     final String varName = varInst.getVariableName();
                     DefinitionMap e = dfaResult.get(i);
-                    e.forEachValue(new Consumer<IntSet>() {
-                        public void accept(IntSet reaching) {
-                            reaching.forEach(new IntConsumer() {
-                                public void accept(int defNum) {
-                                    String defName = ((ReadWriteVariableInstruction) flow[defNum]).getVariableName();
-                                    if (varName.equals(defName)) {
-                                        unusedDefs.remove(defNum);
-                                    }
-                                }
-                            });
+                    e.forEachDefinition(new IntConsumer() {
+                        public void accept(int defNum) {
+                            String defName = ((ReadWriteVariableInstruction) flow[defNum]).getVariableName();
+                            if (varName.equals(defName)) {
+                                unusedDefs.remove(defNum);
+                            }
                         }
                     });
                 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.compiler;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.compiler.TranslatingCompilerFilesMonitor;
+import consulo.module.Module;
+import consulo.module.content.ProjectRootManager;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.util.io.FileUtil;
+import consulo.util.lang.StringUtil;
+import consulo.virtualFileSystem.VirtualFile;
+import consulo.virtualFileSystem.VirtualFileManager;
+import consulo.virtualFileSystem.event.VirtualFileAdapter;
+import consulo.virtualFileSystem.event.VirtualFileEvent;
+import consulo.virtualFileSystem.event.VirtualFileMoveEvent;
+import consulo.virtualFileSystem.event.VirtualFilePropertyEvent;
+import jakarta.annotation.Nonnull;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.jetbrains.plugins.groovy.impl.runner.GroovycOSProcessHandler;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Names of the classes compiled from each Groovy file of a module, passed to groovyc so that it can find the sources of
+ * classes it needs but doesn't compile.
+ * <p>
+ * A module's map is built from a full scan on the first compilation of the module in a session, then kept up to date
+ * from groovyc outputs and file deletions and moves, so that later compilations don't scan the module again. Maps are
+ * dropped when project roots change.
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GroovyClassToSourceMap {
+  private final Project myProject;
+  private final Map<Module, Map<String, Collection<String>>> myModuleMaps = ContainerUtil.createConcurrentWeakMap();
+  private volatile long myRootsModificationCount = -1;
+
+  @Inject
+  public GroovyClassToSourceMap(Project project) {
+    myProject = project;
+    VirtualFileManager.getInstance().addVirtualFileListener(new VirtualFileAdapter() {
+      @Override
+      public void beforeFileDeletion(@Nonnull VirtualFileEvent event) {
+        sourcesRemoved(event.getFile().getPath());
+      }
+
+      @Override
+      public void beforeFileMovement(@Nonnull VirtualFileMoveEvent event) {
+        sourcesRemoved(event.getFile().getPath());
+      }
+
+      @Override
+      public void beforePropertyChange(@Nonnull VirtualFilePropertyEvent event) {
+        if (VirtualFile.PROP_NAME.equals(event.getPropertyName())) {
+          sourcesRemoved(event.getFile().getPath());
+        }
+      }
+    }, project);
+  }
+
+  public static GroovyClassToSourceMap getInstance(Project project) {
+    return project.getInstance(GroovyClassToSourceMap.class);
+  }
+
+  /**
+   * @param toCompile    paths of the files being compiled, left out of the result
+   * @param groovyFiles  Groovy files of the module, asked for only if the module has no map yet
+   * @return class name to source path map for the files of {@code module} not being compiled
+   */
+  @Nonnull
+  public Map<String, String> getClassToSource(@Nonnull Module module,
+                                              @Nonnull Set<String> toCompile,
+                                              @Nonnull Supplier<Collection<VirtualFile>> groovyFiles) {
+    Map<String, String> result = new HashMap<String, String>();
+    for (Map.Entry<String, Collection<String>> entry : getModuleMap(module, groovyFiles).entrySet()) {
+      if (!toCompile.contains(entry.getKey())) {
+        for (String className : entry.getValue()) {
+          result.put(className, entry.getKey());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Replaces the classes of the compiled sources with the ones groovyc produced, so that a source which no longer declares
+   * a class, or doesn't compile at all, loses it
+   *
+   * @param sources paths of the files which were compiled
+   */
+  public void update(@Nonnull Module module,
+                     @Nonnull Set<String> sources,
+                     @Nonnull String outputRoot,
+                     @Nonnull List<GroovycOSProcessHandler.OutputItem> compiled) {
+    Map<String, Collection<String>> moduleMap = myModuleMaps.get(module);
+    if (moduleMap == null) {
+      return;
+    }
+
+    Map<String, Collection<String>> classes = new HashMap<String, Collection<String>>();
+    for (GroovycOSProcessHandler.OutputItem item : compiled) {
+      String relativePath = FileUtil.getRelativePath(new File(outputRoot), new File(item.outputPath));
+      if (relativePath != null) {
+        String className = StringUtil.trimEnd(FileUtil.toSystemIndependentName(relativePath), ".class").replace('/', '.');
+        String sourcePath = FileUtil.toSystemIndependentName(item.sourcePath);
+        classes.computeIfAbsent(sourcePath, k -> new ArrayList<String>()).add(className);
+      }
+    }
+    moduleMap.keySet().removeAll(sources);
+    moduleMap.putAll(classes);
+  }
+
+  @Nonnull
+  private Map<String, Collection<String>> getModuleMap(@Nonnull Module module, @Nonnull Supplier<Collection<VirtualFile>> groovyFiles) {
+    long rootsModificationCount = ProjectRootManager.getInstance(myProject).getModificationCount();
+    if (rootsModificationCount != myRootsModificationCount) {
+      myModuleMaps.clear();
+      myRootsModificationCount = rootsModificationCount;
+    }
+
+    Map<String, Collection<String>> moduleMap = myModuleMaps.get(module);
+    if (moduleMap == null) {
+      moduleMap = new ConcurrentHashMap<String, Collection<String>>();
+      for (VirtualFile file : groovyFiles.get()) {
+        List<String> classNames = new ArrayList<String>();
+        for (String name : TranslatingCompilerFilesMonitor.getInstance().getCompiledClassNames(file, myProject)) {
+          classNames.add(name);
+        }
+        if (!classNames.isEmpty()) {
+          moduleMap.put(file.getPath(), classNames);
+        }
+      }
+      myModuleMaps.put(module, moduleMap);
+    }
+    return moduleMap;
+  }
+
+  private void sourcesRemoved(@Nonnull String path) {
+    String prefix = path + "/";
+    for (Map<String, Collection<String>> moduleMap : myModuleMaps.values()) {
+      moduleMap.keySet().removeIf(source -> source.equals(path) || source.startsWith(prefix));
+    }
+  }
+}
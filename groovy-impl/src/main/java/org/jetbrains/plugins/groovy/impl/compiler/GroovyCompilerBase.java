@@ -114,6 +114,8 @@ public abstract class GroovyCompilerBase implements TranslatingCompiler {
     if (libraries.length > 0) {
       classPathBuilder.addVirtualFiles(Arrays.asList(libraries[0].getFiles(BinariesOrderRootType.getInstance())));
     }
+    // the part of the classpath a compile server process is started with
+    List<String> runnerClasspath = new ArrayList<String>(classPathBuilder.getPathList());
 
     JavaSdkType javaSdkType = (JavaSdkType)sdk.getSdkType();
     classPathBuilder.addVirtualFiles(chunk.getCompilationBootClasspathFiles(javaSdkType, false));
@@ -139,6 +141,7 @@ public abstract class GroovyCompilerBase implements TranslatingCompiler {
       parameters.getVMParametersList().defineProperty("profile.groovy.compiler", "true");
       parameters.getVMParametersList().add("-agentlib:yjpagent=disablej2ee,disablealloc,sessionname=GroovyCompiler");
       classPathBuilder.add(ContainerPathManager.get().findFileInLibDirectory("yjp-controller-api-redist.jar").getAbsolutePath());
+      runnerClasspath.add(ContainerPathManager.get().findFileInLibDirectory("yjp-controller-api-redist.jar").getAbsolutePath());
     }
 
     GroovyCompilerConfiguration compilerConfiguration = GroovyCompilerConfiguration.getInstance(myProject);
@@ -177,24 +180,20 @@ public abstract class GroovyCompilerBase implements TranslatingCompiler {
     String encoding =
       ideCharset != null && !Comparing.equal(CharsetToolkit.getDefaultSystemCharset(), ideCharset) ? ideCharset.name() : null;
     Set<String> paths2Compile = ContainerUtil.map2Set(toCompile, file -> file.getPath());
-    Map<String, String> class2Src = new HashMap<String, String>();
-
-    for (VirtualFile file : enumerateGroovyFiles(module)) {
-      if (!paths2Compile.contains(file.getPath())) {
-        for (String name : TranslatingCompilerFilesMonitor.getInstance().getCompiledClassNames(file, myProject)) {
-          class2Src.put(name, file.getPath());
-        }
-      }
-    }
+    GroovyClassToSourceMap classToSourceMap = GroovyClassToSourceMap.getInstance(myProject);
+    Map<String, String> class2Src = classToSourceMap.getClassToSource(module, paths2Compile, () -> enumerateGroovyFiles(module));
 
     File fileWithParameters;
+    File resultsFile;
     try {
+      resultsFile = FileUtil.createTempFile("ideaGroovycResults", ".bin", true);
       fileWithParameters = GroovycOSProcessHandler.fillFileWithGroovycParameters(outputDir.getPath(),
                                                                                  paths2Compile,
                                                                                  FileUtil.toSystemDependentName(finalOutputDir.getPath()),
                                                                                  class2Src,
                                                                                  encoding,
-                                                                                 patchers);
+                                                                                 patchers,
+                                                                                 resultsFile);
     }
     catch (IOException e) {
       LOG.info(e);
@@ -206,89 +205,124 @@ public abstract class GroovyCompilerBase implements TranslatingCompiler {
       return;
     }
 
-    parameters.getProgramParametersList().add(forStubs ? "stubs" : "groovyc");
-    parameters.getProgramParametersList().add(fileWithParameters.getPath());
-    if (compilerConfiguration.isInvokeDynamic()) {
-      parameters.getProgramParametersList().add("--indy");
-    }
-
     try {
       parameters.setJdk(sdk);
 
-      GeneralCommandLine generalCommandLine = OwnJdkUtil.setupJVMCommandLine(parameters);
-      GroovycOSProcessHandler processHandler =
-        GroovycOSProcessHandler.runGroovyc(generalCommandLine, s -> compileContext.getProgressIndicator().setText(s));
+      GroovycOSProcessHandler processHandler;
+      if (compilerConfiguration.isUseCompileServer()) {
+        List<String> compilationClasspath = new ArrayList<String>(classPathBuilder.getPathList());
+        compilationClasspath.removeAll(runnerClasspath);
+        classPathBuilder.clear();
+        classPathBuilder.addAll(runnerClasspath);
+
+        processHandler = GroovycServerManager.getInstance(myProject).compile(parameters,
+                                                                             compilationClasspath,
+                                                                             forStubs,
+                                                                             fileWithParameters,
+                                                                             compilerConfiguration.isInvokeDynamic(),
+                                                                             compileContext.getProgressIndicator(),
+                                                                             s -> compileContext.getProgressIndicator().setText(s));
+      }
+      else {
+        parameters.getProgramParametersList().add(forStubs ? "stubs" : "groovyc");
+        parameters.getProgramParametersList().add(fileWithParameters.getPath());
+        if (compilerConfiguration.isInvokeDynamic()) {
+          parameters.getProgramParametersList().add("--indy");
+        }
 
-      List<VirtualFile> toRecompile = new ArrayList<VirtualFile>();
-      for (File toRecompileFile : processHandler.getToRecompileFiles()) {
-        VirtualFile vFile = LocalFileSystem.getInstance().findFileByIoFile(toRecompileFile);
-        LOG.assertTrue(vFile != null);
-        toRecompile.add(vFile);
+        GeneralCommandLine generalCommandLine = OwnJdkUtil.setupJVMCommandLine(parameters);
+        processHandler = GroovycOSProcessHandler.runGroovyc(generalCommandLine, s -> compileContext.getProgressIndicator().setText(s));
       }
+      processHandler.readResults(resultsFile);
+      processResults(compileContext, module, forStubs, tests, outputDir, sink, paths2Compile, classToSourceMap, processHandler);
+    }
+    catch (ExecutionException e) {
+      LOG.info(e);
+      compileContext.addMessage(CompilerMessageCategory.ERROR, "Error running Groovy compiler: " + e.getMessage(), null, -1, -1);
+    }
+    finally {
+      FileUtil.delete(resultsFile);
+    }
+  }
+
+  private static void processResults(CompileContext compileContext,
+                                     Module module,
+                                     boolean forStubs,
+                                     boolean tests,
+                                     VirtualFile outputDir,
+                                     OutputSink sink,
+                                     Set<String> paths2Compile,
+                                     GroovyClassToSourceMap classToSourceMap,
+                                     GroovycOSProcessHandler processHandler) {
+    List<VirtualFile> toRecompile = new ArrayList<VirtualFile>();
+    for (File toRecompileFile : processHandler.getToRecompileFiles()) {
+      VirtualFile vFile = LocalFileSystem.getInstance().findFileByIoFile(toRecompileFile);
+      LOG.assertTrue(vFile != null);
+      toRecompile.add(vFile);
+    }
+
+    for (CompilerMessage compilerMessage : processHandler.getCompilerMessages(module.getName())) {
+      String url = compilerMessage.getUrl();
+      compileContext.addMessage(getMessageCategory(compilerMessage),
+                                compilerMessage.getMessage(),
+                                url == null ? null : VirtualFileUtil.pathToUrl(FileUtil.toSystemIndependentName(url)),
+                                (int)compilerMessage.getLineNum(),
+                                (int)compilerMessage.getColumnNum());
+    }
 
-      for (CompilerMessage compilerMessage : processHandler.getCompilerMessages(module.getName())) {
-        String url = compilerMessage.getUrl();
-        compileContext.addMessage(getMessageCategory(compilerMessage),
-                                  compilerMessage.getMessage(),
-                                  url == null ? null : VirtualFileUtil.pathToUrl(FileUtil.toSystemIndependentName(url)),
-                                  (int)compilerMessage.getLineNum(),
-                                  (int)compilerMessage.getColumnNum());
+    GroovycTelemetryReport.report(compileContext, module, tests, forStubs, processHandler.getTelemetry());
+
+    List<GroovycOSProcessHandler.OutputItem> outputItems = processHandler.getSuccessfullyCompiled();
+    ArrayList<OutputItem> items = new ArrayList<OutputItem>();
+    if (forStubs) {
+      List<String> outputPaths = new ArrayList<String>();
+      for (GroovycOSProcessHandler.OutputItem outputItem : outputItems) {
+        outputPaths.add(outputItem.outputPath);
       }
+      addStubsToCompileScope(outputPaths, compileContext, module);
+    }
+    else {
+      ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+      if (indicator != null) {
+        indicator.setText("Updating caches...");
+      }
+
+      classToSourceMap.update(module, paths2Compile, outputDir.getPath(), outputItems);
 
-      List<GroovycOSProcessHandler.OutputItem> outputItems = processHandler.getSuccessfullyCompiled();
-      ArrayList<OutputItem> items = new ArrayList<OutputItem>();
-      if (forStubs) {
-        List<String> outputPaths = new ArrayList<String>();
-        for (GroovycOSProcessHandler.OutputItem outputItem : outputItems) {
-          outputPaths.add(outputItem.outputPath);
+      JavaDependencyCache dependencyCache =
+        ((CompileContextEx)compileContext).getDependencyCache().findChild(JavaDependencyCache.class);
+      for (GroovycOSProcessHandler.OutputItem outputItem : outputItems) {
+        VirtualFile sourceVirtualFile = LocalFileSystem.getInstance().findFileByIoFile(new File(outputItem.sourcePath));
+        if (sourceVirtualFile == null) {
+          continue;
         }
-        addStubsToCompileScope(outputPaths, compileContext, module);
-      }
-      else {
-        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+
         if (indicator != null) {
-          indicator.setText("Updating caches...");
+          indicator.setText2(sourceVirtualFile.getName());
         }
 
-        JavaDependencyCache dependencyCache =
-          ((CompileContextEx)compileContext).getDependencyCache().findChild(JavaDependencyCache.class);
-        for (GroovycOSProcessHandler.OutputItem outputItem : outputItems) {
-          VirtualFile sourceVirtualFile = LocalFileSystem.getInstance().findFileByIoFile(new File(outputItem.sourcePath));
-          if (sourceVirtualFile == null) {
-            continue;
-          }
-
-          if (indicator != null) {
-            indicator.setText2(sourceVirtualFile.getName());
-          }
-
-          LocalFileSystem.getInstance().refreshAndFindFileByIoFile(new File(outputItem.outputPath));
-          items.add(new OutputItemImpl(outputItem.outputPath, sourceVirtualFile));
-
-          File classFile = new File(outputItem.outputPath);
-          try {
-            dependencyCache.reparseClassFile(classFile, Files.readAllBytes(classFile.toPath()));
-          }
-          catch (ClsFormatException e) {
-            LOG.error(e);
-          }
-          catch (CacheCorruptedException e) {
-            LOG.error(e);
-          }
-          catch (FileNotFoundException ignored) {
-          }
-          catch (IOException e) {
-            LOG.error(e);
-          }
+        LocalFileSystem.getInstance().refreshAndFindFileByIoFile(new File(outputItem.outputPath));
+        items.add(new OutputItemImpl(outputItem.outputPath, sourceVirtualFile));
+
+        File classFile = new File(outputItem.outputPath);
+        try {
+          dependencyCache.reparseClassFile(classFile, Files.readAllBytes(classFile.toPath()));
+        }
+        catch (ClsFormatException e) {
+          LOG.error(e);
+        }
+        catch (CacheCorruptedException e) {
+          LOG.error(e);
+        }
+        catch (FileNotFoundException ignored) {
+        }
+        catch (IOException e) {
+          LOG.error(e);
         }
       }
-
-      sink.add(outputDir.getPath(), items, VirtualFileUtil.toVirtualFileArray(toRecompile));
-    }
-    catch (ExecutionException e) {
-      LOG.info(e);
-      compileContext.addMessage(CompilerMessageCategory.ERROR, "Error running Groovy compiler: " + e.getMessage(), null, -1, -1);
     }
+
+    sink.add(outputDir.getPath(), items, VirtualFileUtil.toVirtualFileArray(toRecompile));
   }
 
   protected Set<VirtualFile> enumerateGroovyFiles(Module module) {
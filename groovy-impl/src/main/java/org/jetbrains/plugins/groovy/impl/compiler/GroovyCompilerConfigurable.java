@@ -58,6 +58,7 @@ public class GroovyCompilerConfigurable implements ProjectConfigurable, Configur
     private JPanel myMainPanel;
     private JPanel myExcludesPanel;
     private JBCheckBox myInvokeDynamicSupportCB;
+    private JBCheckBox myUseCompileServerCB;
 
     private final ExcludedEntriesConfigurable myExcludes;
     private final GroovyCompilerConfiguration myConfig;
@@ -124,6 +125,7 @@ public class GroovyCompilerConfigurable implements ProjectConfigurable, Configur
     public boolean isModified() {
         return !Comparing.equal(myConfig.getHeapSize(), myHeapSize.getText()) ||
             myInvokeDynamicSupportCB.isSelected() != myConfig.isInvokeDynamic() ||
+            myUseCompileServerCB.isSelected() != myConfig.isUseCompileServer() ||
             myExcludes.isModified();
     }
 
@@ -132,12 +134,14 @@ public class GroovyCompilerConfigurable implements ProjectConfigurable, Configur
         myExcludes.apply();
         myConfig.setHeapSize(myHeapSize.getText());
         myConfig.setInvokeDynamic(myInvokeDynamicSupportCB.isSelected());
+        myConfig.setUseCompileServer(myUseCompileServerCB.isSelected());
     }
 
     @Override
     public void reset() {
         myHeapSize.setText(myConfig.getHeapSize());
         myInvokeDynamicSupportCB.setSelected(myConfig.isInvokeDynamic());
+        myUseCompileServerCB.setSelected(myConfig.isUseCompileServer());
         myExcludes.reset();
     }
 
@@ -148,7 +152,7 @@ public class GroovyCompilerConfigurable implements ProjectConfigurable, Configur
 
     private void init() {
         myMainPanel = new JPanel();
-        myMainPanel.setLayout(new GridLayoutManager(3, 1, JBUI.emptyInsets(), -1, -1));
+        myMainPanel.setLayout(new GridLayoutManager(4, 1, JBUI.emptyInsets(), -1, -1));
         final JPanel panel1 = new JPanel();
         panel1.setLayout(new GridLayoutManager(1, 3, JBUI.emptyInsets(), -1, -1));
         myMainPanel.add(panel1, new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 0, false));
@@ -161,12 +165,15 @@ public class GroovyCompilerConfigurable implements ProjectConfigurable, Configur
         panel1.add(spacer1, new GridConstraints(0, 2, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_WANT_GROW, 1, null, null, null, 0, false));
         myExcludesPanel = new JPanel();
         myExcludesPanel.setLayout(new BorderLayout(0, 0));
-        myMainPanel.add(myExcludesPanel, new GridConstraints(2, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_WANT_GROW, null, null, null, 0, false));
+        myMainPanel.add(myExcludesPanel, new GridConstraints(3, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_WANT_GROW, null, null, null, 0, false));
         myExcludesPanel.setBorder(IdeBorderFactory.createTitledBorder("Exclude from stub generation", false));
         myInvokeDynamicSupportCB = new JBCheckBox();
         myInvokeDynamicSupportCB.setText("Invoke dynamic support");
         myInvokeDynamicSupportCB.setMnemonic('D');
         myInvokeDynamicSupportCB.setDisplayedMnemonicIndex(7);
         myMainPanel.add(myInvokeDynamicSupportCB, new GridConstraints(1, 0, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+        myUseCompileServerCB = new JBCheckBox();
+        myUseCompileServerCB.setText("Keep compiler process alive between builds");
+        myMainPanel.add(myUseCompileServerCB, new GridConstraints(2, 0, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
     }
 }
@@ -41,6 +41,7 @@ import jakarta.inject.Singleton;
 public class GroovyCompilerConfiguration implements PersistentStateComponent<JpsGroovySettings>, Disposable {
   private String myHeapSize = JpsGroovySettings.DEFAULT_HEAP_SIZE;
   private boolean myInvokeDynamic = JpsGroovySettings.DEFAULT_INVOKE_DYNAMIC;
+  private boolean myUseCompileServer = JpsGroovySettings.DEFAULT_USE_COMPILE_SERVER;
   public boolean transformsOk = JpsGroovySettings.DEFAULT_TRANSFORMS_OK;
   private final ExcludedEntriesConfiguration myExcludeFromStubGeneration = new ExcludedEntriesConfiguration();
 
@@ -50,6 +51,7 @@ public class GroovyCompilerConfiguration implements PersistentStateComponent<Jps
     workspaceConfiguration.myHeapSize = JpsGroovySettings.DEFAULT_HEAP_SIZE;
     workspaceConfiguration.transformsOk = JpsGroovySettings.DEFAULT_TRANSFORMS_OK;
     workspaceConfiguration.myInvokeDynamic = JpsGroovySettings.DEFAULT_INVOKE_DYNAMIC;
+    workspaceConfiguration.myUseCompileServer = JpsGroovySettings.DEFAULT_USE_COMPILE_SERVER;
     workspaceConfiguration.myExcludeFromStubGeneration.removeAllExcludeEntryDescriptions();
   }
 
@@ -57,6 +59,7 @@ public class GroovyCompilerConfiguration implements PersistentStateComponent<Jps
     JpsGroovySettings bean = new JpsGroovySettings();
     bean.heapSize = myHeapSize;
     bean.invokeDynamic = myInvokeDynamic;
+    bean.useCompileServer = myUseCompileServer;
     bean.transformsOk = transformsOk;
     myExcludeFromStubGeneration.writeExternal(bean.excludes);
     return bean;
@@ -73,6 +76,7 @@ public class GroovyCompilerConfiguration implements PersistentStateComponent<Jps
   public void loadState(JpsGroovySettings state) {
     myHeapSize = state.heapSize;
     myInvokeDynamic = state.invokeDynamic;
+    myUseCompileServer = state.useCompileServer;
     transformsOk = state.transformsOk;
 
     myExcludeFromStubGeneration.readExternal(state.excludes);
@@ -90,6 +94,13 @@ public class GroovyCompilerConfiguration implements PersistentStateComponent<Jps
     return myInvokeDynamic;
   }
 
+  /**
+   * @return whether groovyc should run in a process kept alive between compilations, see {@link GroovycServerManager}
+   */
+  public boolean isUseCompileServer() {
+    return myUseCompileServer;
+  }
+
   public void setHeapSize(String heapSize) {
     myHeapSize = heapSize;
   }
@@ -98,6 +109,10 @@ public class GroovyCompilerConfiguration implements PersistentStateComponent<Jps
     myInvokeDynamic = invokeDynamic;
   }
 
+  public void setUseCompileServer(boolean useCompileServer) {
+    myUseCompileServer = useCompileServer;
+  }
+
   public void dispose() {
     Disposer.dispose(myExcludeFromStubGeneration);
   }
@@ -38,6 +38,7 @@ import jakarta.inject.Singleton;
 public class GroovyCompilerWorkspaceConfiguration implements PersistentStateComponent<JpsGroovySettings>, Disposable {
   String myHeapSize = JpsGroovySettings.DEFAULT_HEAP_SIZE;
   boolean myInvokeDynamic = JpsGroovySettings.DEFAULT_INVOKE_DYNAMIC;
+  boolean myUseCompileServer = JpsGroovySettings.DEFAULT_USE_COMPILE_SERVER;
   boolean transformsOk = JpsGroovySettings.DEFAULT_TRANSFORMS_OK;
   final ExcludedEntriesConfiguration myExcludeFromStubGeneration = new ExcludedEntriesConfiguration();
 
@@ -45,6 +46,7 @@ public class GroovyCompilerWorkspaceConfiguration implements PersistentStateComp
     JpsGroovySettings bean = new JpsGroovySettings();
     bean.heapSize = myHeapSize;
     bean.invokeDynamic = myInvokeDynamic;
+    bean.useCompileServer = myUseCompileServer;
     bean.transformsOk = transformsOk;
     myExcludeFromStubGeneration.writeExternal(bean.excludes);
     return bean;
@@ -53,6 +55,7 @@ public class GroovyCompilerWorkspaceConfiguration implements PersistentStateComp
   public void loadState(JpsGroovySettings state) {
     myHeapSize = state.heapSize;
     myInvokeDynamic = state.invokeDynamic;
+    myUseCompileServer = state.useCompileServer;
     transformsOk = state.transformsOk;
 
     myExcludeFromStubGeneration.readExternal(state.excludes);
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.compiler;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.progress.ProgressIndicator;
+import consulo.component.ProcessCanceledException;
+import consulo.disposer.Disposable;
+import consulo.java.execution.configurations.OwnJavaParameters;
+import consulo.java.execution.projectRoots.OwnJdkUtil;
+import consulo.logging.Logger;
+import consulo.process.ExecutionException;
+import consulo.process.ProcessHandler;
+import consulo.process.ProcessOutputTypes;
+import consulo.process.cmd.GeneralCommandLine;
+import consulo.process.event.ProcessEvent;
+import consulo.process.event.ProcessListener;
+import consulo.process.local.ProcessHandlerFactory;
+import consulo.project.Project;
+import consulo.util.dataholder.Key;
+import jakarta.annotation.Nonnull;
+import jakarta.inject.Singleton;
+import org.jetbrains.groovy.compiler.rt.GroovyRtConstants;
+import org.jetbrains.groovy.compiler.rt.GroovycServer;
+import org.jetbrains.plugins.groovy.impl.runner.GroovycOSProcessHandler;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link GroovycServer} process alive between groovyc runs of a project. The process is recycled whenever its
+ * command line changes (JDK, Groovy library, heap size, proxy settings) or one of the jars it was started with is
+ * modified, and is stopped when the project is closed.
+ * <p>
+ * While a request runs, the progress indicator and the process are polled; a process which exits, stays silent for
+ * {@link #RESPONSE_TIMEOUT_MINUTES} or whose request is cancelled is stopped.
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GroovycServerManager implements Disposable {
+  private static final Logger LOG = Logger.getInstance(GroovycServerManager.class);
+  private static final int START_TIMEOUT_SECONDS = 60;
+  private static final int RESPONSE_TIMEOUT_MINUTES = 30;
+  private static final int POLL_MILLIS = 500;
+
+  private ServerProcess myServer;
+
+  public static GroovycServerManager getInstance(Project project) {
+    return project.getInstance(GroovycServerManager.class);
+  }
+
+  /**
+   * Runs groovyc in the server process, starting one if needed.
+   *
+   * @param serverParameters parameters of the server JVM; its classpath must contain the groovyc runner and Groovy only
+   * @param classpath        compilation classpath, loaded by the server for this request
+   */
+  @Nonnull
+  public synchronized GroovycOSProcessHandler compile(@Nonnull OwnJavaParameters serverParameters,
+                                                      @Nonnull List<String> classpath,
+                                                      boolean forStubs,
+                                                      @Nonnull File argsFile,
+                                                      boolean invokeDynamic,
+                                                      @Nonnull ProgressIndicator indicator,
+                                                      @Nonnull Consumer<String> statusUpdater) throws ExecutionException {
+    serverParameters.setMainClass(GroovycServer.class.getName());
+    GeneralCommandLine commandLine = OwnJdkUtil.setupJVMCommandLine(serverParameters);
+    String key = getServerKey(commandLine, serverParameters.getClassPath().getPathList());
+
+    if (myServer != null && (!myServer.key.equals(key) || myServer.handler.isProcessTerminated())) {
+      stopServer();
+    }
+    if (myServer == null) {
+      myServer = startServer(commandLine, key);
+    }
+    ServerProcess server = myServer;
+
+    GroovycOSProcessHandler handler = new GroovycOSProcessHandler(statusUpdater);
+    try (Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), server.port)) {
+      socket.setSoTimeout(POLL_MILLIS);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeUTF(server.token);
+      out.writeUTF(forStubs ? "stubs" : "groovyc");
+      out.writeUTF(argsFile.getPath());
+      out.writeBoolean(invokeDynamic);
+      out.writeInt(classpath.size());
+      for (String path : classpath) {
+        out.writeUTF(path);
+      }
+      out.flush();
+
+      InputStream in = new PollingInputStream(socket.getInputStream(), server, indicator);
+      readResponse(new DataInputStream(new BufferedInputStream(in)), handler);
+    }
+    catch (ProcessCanceledException e) {
+      // the server is still busy with the request, it can't be reused
+      stopServer();
+      throw e;
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      String serverOutput = server.getOutput();
+      stopServer();
+      throw new ExecutionException("Groovy compile server failed: " + e.getMessage() + (serverOutput.isEmpty() ? "" : "\n" + serverOutput));
+    }
+    return handler;
+  }
+
+  private static void readResponse(@Nonnull DataInputStream in, @Nonnull GroovycOSProcessHandler handler) throws IOException {
+    LineBuffer stdout = new LineBuffer(handler, ProcessOutputTypes.STDOUT);
+    LineBuffer stderr = new LineBuffer(handler, ProcessOutputTypes.STDERR);
+    while (true) {
+      byte kind = in.readByte();
+      if (kind == GroovycServer.EXIT) {
+        stdout.flush();
+        stderr.flush();
+        handler.notifyTerminated(in.readInt());
+        return;
+      }
+
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      (kind == GroovycServer.STDERR ? stderr : stdout).append(bytes);
+    }
+  }
+
+  @Nonnull
+  private static String getServerKey(@Nonnull GeneralCommandLine commandLine, @Nonnull List<String> serverClasspath) {
+    StringBuilder key = new StringBuilder(commandLine.getCommandLineString());
+    for (String path : serverClasspath) {
+      key.append('\n').append(new File(path).lastModified());
+    }
+    return key.toString();
+  }
+
+  @Nonnull
+  private static ServerProcess startServer(@Nonnull GeneralCommandLine commandLine, @Nonnull String key) throws ExecutionException {
+    ProcessHandler handler = ProcessHandlerFactory.getInstance().createProcessHandler(commandLine);
+    ServerProcess server = new ServerProcess(handler, key);
+    handler.addProcessListener(server);
+    handler.startNotify();
+
+    String started;
+    try {
+      started = server.started.get(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    catch (TimeoutException | InterruptedException e) {
+      handler.destroyProcess();
+      throw new ExecutionException("Groovy compile server did not start: " + server.getOutput());
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      throw new ExecutionException(e.getCause().getMessage());
+    }
+
+    int space = started.indexOf(' ');
+    server.port = Integer.parseInt(started.substring(0, space));
+    server.token = started.substring(space + 1);
+    return server;
+  }
+
+  private void stopServer() {
+    if (myServer != null) {
+      if (!myServer.handler.isProcessTerminated()) {
+        myServer.handler.destroyProcess();
+      }
+      myServer = null;
+    }
+  }
+
+  @Override
+  public synchronized void dispose() {
+    stopServer();
+  }
+
+  private static class ServerProcess implements ProcessListener {
+    final ProcessHandler handler;
+    final String key;
+    final CompletableFuture<String> started = new CompletableFuture<>();
+    private final StringBuffer myOutput = new StringBuffer();
+    int port;
+    String token;
+
+    ServerProcess(@Nonnull ProcessHandler handler, @Nonnull String key) {
+      this.handler = handler;
+      this.key = key;
+    }
+
+    @Override
+    public void onTextAvailable(ProcessEvent event, Key outputType) {
+      String text = event.getText();
+      if (outputType == ProcessOutputTypes.STDOUT && text.startsWith(GroovyRtConstants.SERVER_STARTED)) {
+        started.complete(text.substring(GroovyRtConstants.SERVER_STARTED.length()).trim());
+      }
+      else if (outputType != ProcessOutputTypes.SYSTEM) {
+        myOutput.append(text);
+      }
+    }
+
+    @Override
+    public void processTerminated(ProcessEvent event) {
+      started.completeExceptionally(new ExecutionException("Groovy compile server exited with code " + event.getExitCode() + ": " + getOutput()));
+    }
+
+    @Nonnull
+    String getOutput() {
+      return myOutput.toString().trim();
+    }
+  }
+
+  /**
+   * Waits for the response of the server in short reads, checking for cancellation and for the server process exiting in
+   * between. A read which times out transfers no data, so it is safe to retry.
+   */
+  private static class PollingInputStream extends FilterInputStream {
+    private final ServerProcess myServer;
+    private final ProgressIndicator myIndicator;
+    private long myLastRead = System.currentTimeMillis();
+
+    PollingInputStream(@Nonnull InputStream in, @Nonnull ServerProcess server, @Nonnull ProgressIndicator indicator) {
+      super(in);
+      myServer = server;
+      myIndicator = indicator;
+    }
+
+    @Override
+    public int read() throws IOException {
+      while (true) {
+        try {
+          int result = super.read();
+          myLastRead = System.currentTimeMillis();
+          return result;
+        }
+        catch (SocketTimeoutException e) {
+          checkAlive();
+        }
+      }
+    }
+
+    @Override
+    public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+      while (true) {
+        try {
+          int result = super.read(b, off, len);
+          myLastRead = System.currentTimeMillis();
+          return result;
+        }
+        catch (SocketTimeoutException e) {
+          checkAlive();
+        }
+      }
+    }
+
+    private void checkAlive() throws IOException {
+      myIndicator.checkCanceled();
+      if (myServer.handler.isProcessTerminated()) {
+        throw new IOException("the server process exited");
+      }
+      if (System.currentTimeMillis() - myLastRead > TimeUnit.MINUTES.toMillis(RESPONSE_TIMEOUT_MINUTES)) {
+        throw new SocketTimeoutException("no response for " + RESPONSE_TIMEOUT_MINUTES + " minutes");
+      }
+    }
+  }
+
+  /**
+   * Passes output to the handler line by line, as a process handler would
+   */
+  private static class LineBuffer {
+    private final GroovycOSProcessHandler myHandler;
+    private final Key myOutputType;
+    private final ByteArrayOutputStream myLine = new ByteArrayOutputStream();
+
+    LineBuffer(@Nonnull GroovycOSProcessHandler handler, @Nonnull Key outputType) {
+      myHandler = handler;
+      myOutputType = outputType;
+    }
+
+    void append(@Nonnull byte[] bytes) {
+      for (byte b : bytes) {
+        myLine.write(b);
+        if (b == '\n') {
+          flush();
+        }
+      }
+    }
+
+    void flush() {
+      if (myLine.size() > 0) {
+        myHandler.notifyTextAvailable(new String(myLine.toByteArray(), StandardCharsets.UTF_8), myOutputType);
+        myLine.reset();
+      }
+    }
+  }
+}
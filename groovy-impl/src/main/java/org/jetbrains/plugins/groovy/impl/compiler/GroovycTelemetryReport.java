@@ -0,0 +1,192 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.compiler;
+
+import consulo.compiler.CompileContext;
+import consulo.compiler.CompilerMessageCategory;
+import consulo.compiler.CompilerPaths;
+import consulo.logging.Logger;
+import consulo.module.Module;
+import jakarta.annotation.Nonnull;
+import org.jetbrains.groovy.compiler.rt.GroovycResultWriter;
+import org.jetbrains.plugins.groovy.impl.runner.GroovycOSProcessHandler.TelemetryItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reports the telemetry of a groovyc run: a summary in the compile log and a JSON file per module and source set in
+ * {@code groovycTelemetry} under the compiler's generated data directory, overwritten by each compilation, for
+ * tracking compile times on CI.
+ */
+class GroovycTelemetryReport {
+  private static final Logger LOG = Logger.getInstance(GroovycTelemetryReport.class);
+  private static final String TELEMETRY_DIRECTORY = "groovycTelemetry";
+  private static final int TOP_COUNT = 5;
+
+  private GroovycTelemetryReport() {
+  }
+
+  static void report(@Nonnull CompileContext compileContext,
+                     @Nonnull Module module,
+                     boolean tests,
+                     boolean forStubs,
+                     @Nonnull List<TelemetryItem> telemetry) {
+    if (telemetry.isEmpty()) {
+      return;
+    }
+    String sourceSet = (tests ? "tests" : "production") + (forStubs ? "-stubs" : "");
+
+    List<TelemetryItem> phases = filter(telemetry, GroovycResultWriter.TELEMETRY_PHASE);
+    List<TelemetryItem> operations = filter(telemetry, GroovycResultWriter.TELEMETRY_OPERATION);
+    List<TelemetryItem> files = filter(telemetry, GroovycResultWriter.TELEMETRY_FILE);
+
+    compileContext.addMessage(CompilerMessageCategory.STATISTICS, getSummary(module, sourceSet, phases, operations, files), null, -1, -1);
+
+    File file = new File(CompilerPaths.getGeneratedDataDirectory(module.getProject()),
+                         TELEMETRY_DIRECTORY + "/" + module.getName() + "/" + sourceSet + ".json");
+    try {
+      Files.createDirectories(file.getParentFile().toPath());
+      Files.write(file.toPath(), toJson(module, sourceSet, phases, operations, files).getBytes(StandardCharsets.UTF_8));
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
+  @Nonnull
+  private static String getSummary(@Nonnull Module module,
+                                   @Nonnull String sourceSet,
+                                   @Nonnull List<TelemetryItem> phases,
+                                   @Nonnull List<TelemetryItem> operations,
+                                   @Nonnull List<TelemetryItem> files) {
+    long total = 0;
+    long allocated = 0;
+    for (TelemetryItem phase : phases) {
+      total += phase.nanos;
+      allocated = phase.allocatedBytes < 0 || allocated < 0 ? -1 : allocated + phase.allocatedBytes;
+    }
+
+    StringBuilder summary = new StringBuilder();
+    summary.append("Groovyc ").append(module.getName()).append(" (").append(sourceSet).append("): ").append(toMillis(total)).append(" ms");
+    if (allocated >= 0) {
+      summary.append(", ").append(allocated >> 20).append(" MB allocated");
+    }
+    if (!phases.isEmpty()) {
+      summary.append(", ").append(phases.get(phases.size() - 1).liveHeapBytes >> 20).append(" MB heap at the end");
+    }
+    appendTimes(summary, "phases", phases, phases.size());
+    appendTimes(summary, "slowest operations", sortByTime(operations), TOP_COUNT);
+    appendTimes(summary, "slowest files", sortByTime(files), TOP_COUNT);
+    return summary.toString();
+  }
+
+  private static void appendTimes(@Nonnull StringBuilder summary, @Nonnull String title, @Nonnull List<TelemetryItem> items, int count) {
+    if (items.isEmpty()) {
+      return;
+    }
+    summary.append("\n  ").append(title).append(": ");
+    for (int i = 0; i < Math.min(count, items.size()); i++) {
+      if (i > 0) {
+        summary.append(", ");
+      }
+      String name = items.get(i).name;
+      if (items.get(i).kind.equals(GroovycResultWriter.TELEMETRY_FILE)) {
+        name = new File(name).getName();
+      }
+      summary.append(name).append(' ').append(toMillis(items.get(i).nanos)).append(" ms");
+    }
+  }
+
+  @Nonnull
+  private static String toJson(@Nonnull Module module,
+                               @Nonnull String sourceSet,
+                               @Nonnull List<TelemetryItem> phases,
+                               @Nonnull List<TelemetryItem> operations,
+                               @Nonnull List<TelemetryItem> files) {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n");
+    json.append("  \"module\": ").append(quote(module.getName())).append(",\n");
+    json.append("  \"sourceSet\": ").append(quote(sourceSet)).append(",\n");
+    json.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+    appendJsonItems(json, "phases", phases, true);
+    json.append(",\n");
+    appendJsonItems(json, "operations", operations, false);
+    json.append(",\n");
+    appendJsonItems(json, "files", files, false);
+    json.append("\n}\n");
+    return json.toString();
+  }
+
+  private static void appendJsonItems(@Nonnull StringBuilder json, @Nonnull String name, @Nonnull List<TelemetryItem> items, boolean memory) {
+    json.append("  ").append(quote(name)).append(": [");
+    for (int i = 0; i < items.size(); i++) {
+      TelemetryItem item = items.get(i);
+      json.append(i == 0 ? "\n" : ",\n");
+      json.append("    {\"name\": ").append(quote(item.name)).append(", \"nanos\": ").append(item.nanos);
+      if (memory) {
+        json.append(", \"allocatedBytes\": ").append(item.allocatedBytes).append(", \"liveHeapBytes\": ").append(item.liveHeapBytes);
+      }
+      json.append('}');
+    }
+    json.append(items.isEmpty() ? "]" : "\n  ]");
+  }
+
+  @Nonnull
+  private static String quote(@Nonnull String s) {
+    StringBuilder result = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        result.append('\\').append(c);
+      }
+      else if (c < 0x20) {
+        result.append(String.format("\\u%04x", (int)c));
+      }
+      else {
+        result.append(c);
+      }
+    }
+    return result.append('"').toString();
+  }
+
+  @Nonnull
+  private static List<TelemetryItem> filter(@Nonnull List<TelemetryItem> telemetry, @Nonnull String kind) {
+    List<TelemetryItem> result = new ArrayList<>();
+    for (TelemetryItem item : telemetry) {
+      if (kind.equals(item.kind)) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  @Nonnull
+  private static List<TelemetryItem> sortByTime(@Nonnull List<TelemetryItem> items) {
+    List<TelemetryItem> result = new ArrayList<>(items);
+    result.sort(Comparator.comparingLong((TelemetryItem item) -> item.nanos).reversed());
+    return result;
+  }
+
+  private static long toMillis(long nanos) {
+    return nanos / 1000000;
+  }
+}
@@ -26,9 +26,11 @@ public class JpsGroovySettings {
   public static final String DEFAULT_HEAP_SIZE = "400";
   public static final boolean DEFAULT_INVOKE_DYNAMIC = false;
   public static final boolean DEFAULT_TRANSFORMS_OK = false;
+  public static final boolean DEFAULT_USE_COMPILE_SERVER = false;
 
   public String heapSize = DEFAULT_HEAP_SIZE;
   public boolean invokeDynamic = DEFAULT_INVOKE_DYNAMIC;
+  public boolean useCompileServer = DEFAULT_USE_COMPILE_SERVER;
 
   @Tag("excludes") public Element excludes = new Element("aaa");
 
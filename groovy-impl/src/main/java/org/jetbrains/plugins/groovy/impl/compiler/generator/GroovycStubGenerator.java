@@ -30,10 +30,12 @@ import consulo.compiler.scope.CompileScope;
 import consulo.compiler.scope.FileSetCompileScope;
 import consulo.compiler.setting.ExcludedEntriesConfiguration;
 import consulo.compiler.util.CompilerUtil;
+import consulo.component.ProcessCanceledException;
 import consulo.content.ContentIterator;
 import consulo.language.content.LanguageContentFolderScopes;
 import consulo.language.content.ProductionContentFolderTypeProvider;
 import consulo.language.content.TestContentFolderTypeProvider;
+import consulo.language.psi.PsiFile;
 import consulo.language.psi.PsiManager;
 import consulo.language.psi.scope.GlobalSearchScope;
 import consulo.logging.Logger;
@@ -48,6 +50,7 @@ import consulo.project.Project;
 import consulo.util.collection.Chunk;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.collection.FactoryMap;
+import consulo.util.concurrent.ConcurrencyUtil;
 import consulo.util.io.FileUtil;
 import consulo.util.lang.Pair;
 import consulo.util.lang.StringUtil;
@@ -67,8 +70,10 @@ import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyNamesUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author peter
@@ -79,6 +84,22 @@ public class GroovycStubGenerator extends GroovyCompilerBase {
 
   public static final String GROOVY_STUBS = "groovyStubs";
 
+  /**
+   * Modules with fewer files to generate stubs for are processed on the compile thread
+   */
+  private static final int PARALLEL_THRESHOLD = 16;
+  private static final int POOL_SIZE = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+  private static final ThreadPoolExecutor ourPool = new ThreadPoolExecutor(POOL_SIZE,
+                                                                           POOL_SIZE,
+                                                                           1,
+                                                                           TimeUnit.SECONDS,
+                                                                           new LinkedBlockingQueue<Runnable>(),
+                                                                           ConcurrencyUtil.newNamedThreadFactory("Groovy Stub Generator"));
+
+  static {
+    ourPool.allowCoreThreadTimeOut(true);
+  }
+
   @Inject
   public GroovycStubGenerator(Project project) {
     super(project);
@@ -161,7 +182,6 @@ public class GroovycStubGenerator extends GroovyCompilerBase {
 
     VirtualFile tempOutput = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(outDir);
     assert tempOutput != null;
-    cleanDirectory(tempOutput);
 
     ((CompileContextEx)compileContext).assignModule(tempOutput, module, tests, this);
 
@@ -170,18 +190,84 @@ public class GroovycStubGenerator extends GroovyCompilerBase {
 
     try {
       GroovyToJavaGenerator generator = new GroovyToJavaGenerator(myProject, new HashSet<>(toCompile));
-      for (int i = 0; i < toCompile.size(); i++) {
-        indicator.setFraction((double)i / toCompile.size());
-
-        Collection<VirtualFile> stubFiles = generateItems(generator, toCompile.get(i), tempOutput, compileContext, myProject);
-        ((CompileContextEx)compileContext).addScope(new FileSetCompileScope(stubFiles, new Module[]{module}));
+      Map<VirtualFile, List<File>> generated = toCompile.size() < PARALLEL_THRESHOLD || POOL_SIZE < 2
+                                               ? generateSequentially(generator, toCompile, tempOutput, indicator)
+                                               : generateInParallel(generator, toCompile, tempOutput, indicator);
+      // the stubs of cancelled files are missing, they must not be taken for stale ones
+      indicator.checkCanceled();
+      deleteStaleStubs(tempOutput, generated);
+
+      List<File> stubs = new ArrayList<>();
+      for (List<File> fileStubs : generated.values()) {
+        stubs.addAll(fileStubs);
       }
+      ((CompileContextEx)compileContext).addScope(new FileSetCompileScope(refreshStubs(stubs), new Module[]{module}));
     }
     finally {
       indicator.popState();
     }
   }
 
+  private Map<VirtualFile, List<File>> generateSequentially(GroovyToJavaGenerator generator,
+                                                            List<VirtualFile> toCompile,
+                                                            VirtualFile outputRootDirectory,
+                                                            ProgressIndicator indicator) {
+    Map<VirtualFile, List<File>> stubs = new LinkedHashMap<>();
+    for (int i = 0; i < toCompile.size(); i++) {
+      indicator.setFraction((double)i / toCompile.size());
+      stubs.put(toCompile.get(i), generateStubs(generator, toCompile.get(i), outputRootDirectory, indicator, myProject));
+    }
+    return stubs;
+  }
+
+  /**
+   * Generates and writes stubs on the pool, one read action per file. VFS refresh of the stubs is left to the caller,
+   * so that it happens once on the compile thread.
+   */
+  private Map<VirtualFile, List<File>> generateInParallel(GroovyToJavaGenerator generator,
+                                                          List<VirtualFile> toCompile,
+                                                          VirtualFile outputRootDirectory,
+                                                          ProgressIndicator indicator) {
+    AtomicInteger done = new AtomicInteger();
+    List<Future<List<File>>> futures = new ArrayList<>(toCompile.size());
+    for (VirtualFile file : toCompile) {
+      futures.add(ourPool.submit(() -> {
+        if (indicator.isCanceled()) {
+          return Collections.<File>emptyList();
+        }
+        List<File> stubs = generateStubs(generator, file, outputRootDirectory, indicator, myProject);
+        indicator.setFraction((double)done.incrementAndGet() / toCompile.size());
+        return stubs;
+      }));
+    }
+
+    Map<VirtualFile, List<File>> stubs = new LinkedHashMap<>();
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        stubs.put(toCompile.get(i), futures.get(i).get());
+      }
+    }
+    catch (InterruptedException e) {
+      throw new ProcessCanceledException();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new RuntimeException(cause);
+    }
+    finally {
+      for (Future<List<File>> future : futures) {
+        future.cancel(false);
+      }
+    }
+    return stubs;
+  }
+
   private static File getStubOutput(Module module, boolean tests) {
     Project project = module.getProject();
     String rootPath = CompilerPaths.getGeneratedDataDirectory(project).getPath() + "/" + GROOVY_STUBS + "/";
@@ -206,25 +292,100 @@ public class GroovycStubGenerator extends GroovyCompilerBase {
     return JavaPsiFacade.getInstance(project).findClass(fqn, GlobalSearchScope.moduleScope(module));
   }
 
-  private void cleanDirectory(VirtualFile dir) {
-    WriteAction.runAndWait(() -> {
-      VirtualFileUtil.processFilesRecursively(dir, new Predicate<>() {
-        @Override
-        public boolean test(VirtualFile virtualFile) {
-          if (!virtualFile.isDirectory()) {
-            try {
-              virtualFile.delete(this);
-            }
-            catch (IOException e) {
-              LOG.info(e);
-            }
+  /**
+   * Stubs are kept between compilations, so that unchanged ones keep their timestamps and don't make javac recompile
+   * their dependents. Deletes the stubs which a changed file no longer generates, and the stubs of deleted or excluded
+   * files, as recorded by the {@link StubSourceIndex} of the output directory.
+   * <p>
+   * Without an index, e.g. on the first run, every stub not generated in this run is looked at once: it is deleted if
+   * its class is no longer defined in a Groovy file which gets stubs, and recorded as a stub of that file otherwise.
+   */
+  private void deleteStaleStubs(VirtualFile outputRoot, Map<VirtualFile, List<File>> generated) {
+    ExcludedEntriesConfiguration excluded = GroovyCompilerConfiguration.getExcludeConfiguration(myProject);
+    File outputDir = VirtualFileUtil.virtualToIoFile(outputRoot);
+
+    Set<String> generatedPaths = new HashSet<>();
+    Map<String, Set<String>> generatedBySource = new HashMap<>();
+    for (Map.Entry<VirtualFile, List<File>> entry : generated.entrySet()) {
+      Set<String> sourceStubs = new HashSet<>();
+      for (File stub : entry.getValue()) {
+        String path = FileUtil.getRelativePath(outputRoot.getPath(), FileUtil.toSystemIndependentName(stub.getPath()), '/');
+        if (path != null) {
+          sourceStubs.add(path);
+        }
+      }
+      generatedPaths.addAll(sourceStubs);
+      generatedBySource.put(entry.getKey().getPath(), sourceStubs);
+    }
+
+    Set<String> stale = new HashSet<>();
+    StubSourceIndex index = StubSourceIndex.load(outputDir);
+    if (index == null) {
+      index = StubSourceIndex.create(outputDir);
+      Map<String, Set<String>> existing = new HashMap<>();
+      AccessRule.read(() -> VirtualFileUtil.processFilesRecursively(outputRoot, file -> {
+        String path = file.isDirectory() ? null : VirtualFileUtil.getRelativePath(file, outputRoot, '/');
+        if (path != null && !generatedPaths.contains(path)) {
+          VirtualFile source = findGroovySource(file, excluded);
+          if (source == null) {
+            stale.add(path);
+          }
+          else {
+            existing.computeIfAbsent(source.getPath(), k -> new HashSet<>()).add(path);
+          }
+        }
+        return true;
+      }));
+      for (Map.Entry<String, Set<String>> entry : existing.entrySet()) {
+        index.update(entry.getKey(), entry.getValue());
+      }
+    }
+    else {
+      LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+      for (String source : new ArrayList<>(index.getSources())) {
+        if (!generatedBySource.containsKey(source)) {
+          VirtualFile file = fileSystem.findFileByPath(source);
+          if (file == null || !file.isValid() || excluded.isExcluded(file)) {
+            stale.addAll(index.update(source, Collections.<String>emptySet()));
           }
-          return true;
         }
-      });
+      }
+    }
+
+    for (Map.Entry<String, Set<String>> entry : generatedBySource.entrySet()) {
+      stale.addAll(index.update(entry.getKey(), entry.getValue()));
+    }
+    // a class may have moved to another file generated in this run
+    stale.removeAll(generatedPaths);
+    index.save();
+    if (stale.isEmpty()) {
+      return;
+    }
+
+    WriteAction.runAndWait(() -> {
+      for (String path : stale) {
+        VirtualFile file = outputRoot.findFileByRelativePath(path);
+        if (file == null) {
+          continue;
+        }
+        try {
+          file.delete(this);
+        }
+        catch (IOException e) {
+          LOG.info(e);
+        }
+      }
     });
   }
 
+  @Nullable
+  private VirtualFile findGroovySource(VirtualFile stub, ExcludedEntriesConfiguration excluded) {
+    PsiClass psiClass = findClassByStub(myProject, stub);
+    PsiFile file = psiClass == null ? null : psiClass.getContainingFile();
+    VirtualFile source = file == null ? null : file.getVirtualFile();
+    return file instanceof GroovyFile && source != null && !excluded.isExcluded(source) ? source : null;
+  }
+
   @Nonnull
   public String getDescription() {
     return "Groovy to java source code generator";
@@ -239,7 +400,14 @@ public class GroovycStubGenerator extends GroovyCompilerBase {
                                                       VirtualFile outputRootDirectory,
                                                       CompileContext context,
                                                       Project project) {
-    ProgressIndicator indicator = context.getProgressIndicator();
+    return refreshStubs(generateStubs(generator, item, outputRootDirectory, context.getProgressIndicator(), project));
+  }
+
+  private static List<File> generateStubs(GroovyToJavaGenerator generator,
+                                          VirtualFile item,
+                                          VirtualFile outputRootDirectory,
+                                          ProgressIndicator indicator,
+                                          Project project) {
     indicator.setText("Generating stubs for " + item.getName() + "...");
 
     if (LOG.isDebugEnabled()) {
@@ -253,17 +421,40 @@ public class GroovycStubGenerator extends GroovyCompilerBase {
     return writeStubs(outputRootDirectory, output, item);
   }
 
-  private static List<VirtualFile> writeStubs(VirtualFile outputRootDirectory, Map<String, CharSequence> output, VirtualFile src) {
-    ArrayList<VirtualFile> stubs = ContainerUtil.newArrayList();
+  private static List<File> writeStubs(VirtualFile outputRootDirectory, Map<String, CharSequence> output, VirtualFile src) {
+    List<File> stubs = new ArrayList<>();
     for (String relativePath : output.keySet()) {
       File stubFile = new File(outputRootDirectory.getPath(), relativePath);
-      FileUtil.createIfDoesntExist(stubFile);
-      try {
-        FileUtil.writeToFile(stubFile, output.get(relativePath).toString().getBytes(src.getCharset()));
-      }
-      catch (IOException e) {
-        LOG.error(e);
+      byte[] content = output.get(relativePath).toString().getBytes(src.getCharset());
+      if (!hasContent(stubFile, content)) {
+        FileUtil.createIfDoesntExist(stubFile);
+        try {
+          FileUtil.writeToFile(stubFile, content);
+        }
+        catch (IOException e) {
+          LOG.error(e);
+        }
       }
+      stubs.add(stubFile);
+    }
+    return stubs;
+  }
+
+  private static boolean hasContent(File file, byte[] content) {
+    if (file.length() != content.length) {
+      return false;
+    }
+    try {
+      return Arrays.equals(Files.readAllBytes(file.toPath()), content);
+    }
+    catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static List<VirtualFile> refreshStubs(List<File> stubFiles) {
+    List<VirtualFile> stubs = new ArrayList<>(stubFiles.size());
+    for (File stubFile : stubFiles) {
       CompilerUtil.refreshIOFile(stubFile);
       ContainerUtil.addIfNotNull(stubs, LocalFileSystem.getInstance().refreshAndFindFileByIoFile(stubFile));
     }
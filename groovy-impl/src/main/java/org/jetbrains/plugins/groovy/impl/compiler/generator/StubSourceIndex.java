@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.compiler.generator;
+
+import consulo.logging.Logger;
+import consulo.util.io.FileUtil;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Groovy sources of a stub output directory and the stubs generated for each of them, saved next to the directory, so
+ * that a run finds the stubs left over by changed and deleted sources without looking at the other stubs.
+ * <p>
+ * Paths are system-independent. The stubs of a source are kept relative to the output directory.
+ */
+class StubSourceIndex {
+  private static final Logger LOG = Logger.getInstance(StubSourceIndex.class);
+  private static final int VERSION = 1;
+
+  private final File myFile;
+  private final Map<String, Set<String>> myStubs;
+
+  private StubSourceIndex(@Nonnull File file, @Nonnull Map<String, Set<String>> stubs) {
+    myFile = file;
+    myStubs = stubs;
+  }
+
+  @Nonnull
+  static File getIndexFile(@Nonnull File outputRoot) {
+    return new File(outputRoot.getParentFile(), outputRoot.getName() + ".sources");
+  }
+
+  /**
+   * @return the saved index, or {@code null} if there is none or it can't be read
+   */
+  @Nullable
+  static StubSourceIndex load(@Nonnull File outputRoot) {
+    File file = getIndexFile(outputRoot);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != VERSION) {
+        return null;
+      }
+      int count = in.readInt();
+      Map<String, Set<String>> stubs = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+      for (int i = 0; i < count; i++) {
+        String source = in.readUTF();
+        int stubCount = in.readInt();
+        Set<String> sourceStubs = new HashSet<>(stubCount);
+        for (int j = 0; j < stubCount; j++) {
+          sourceStubs.add(in.readUTF());
+        }
+        stubs.put(source, sourceStubs);
+      }
+      return new StubSourceIndex(file, stubs);
+    }
+    catch (IOException e) {
+      LOG.info("Cannot read Groovy stub index " + file, e);
+      return null;
+    }
+  }
+
+  @Nonnull
+  static StubSourceIndex create(@Nonnull File outputRoot) {
+    return new StubSourceIndex(getIndexFile(outputRoot), new HashMap<String, Set<String>>());
+  }
+
+  @Nonnull
+  Set<String> getSources() {
+    return myStubs.keySet();
+  }
+
+  /**
+   * Replaces the stubs of {@code source}
+   *
+   * @return stubs the source had before and doesn't have now
+   */
+  @Nonnull
+  Set<String> update(@Nonnull String source, @Nonnull Set<String> stubs) {
+    Set<String> old = stubs.isEmpty() ? myStubs.remove(source) : myStubs.put(source, stubs);
+    if (old == null) {
+      return Collections.emptySet();
+    }
+    Set<String> removed = new HashSet<>(old);
+    removed.removeAll(stubs);
+    return removed;
+  }
+
+  void save() {
+    File temp = new File(myFile.getPath() + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        out.writeInt(VERSION);
+        out.writeInt(myStubs.size());
+        for (Map.Entry<String, Set<String>> entry : myStubs.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeInt(entry.getValue().size());
+          for (String stub : entry.getValue()) {
+            out.writeUTF(stub);
+          }
+        }
+      }
+      FileUtil.delete(myFile);
+      if (!temp.renameTo(myFile)) {
+        throw new IOException("Cannot rename " + temp + " to " + myFile);
+      }
+    }
+    catch (IOException e) {
+      // without the index the next run looks at the whole output directory
+      LOG.info("Cannot save Groovy stub index " + myFile, e);
+      FileUtil.delete(temp);
+      FileUtil.delete(myFile);
+    }
+  }
+}
@@ -15,7 +15,6 @@
  */
 package org.jetbrains.plugins.groovy.impl.dgm;
 
-import com.intellij.java.language.psi.JavaPsiFacade;
 import com.intellij.java.language.psi.PsiClass;
 import com.intellij.java.language.psi.PsiType;
 import consulo.annotation.component.ExtensionImpl;
@@ -26,6 +25,7 @@ import consulo.language.psi.scope.GlobalSearchScope;
 import consulo.project.Project;
 import consulo.util.lang.Pair;
 import org.jetbrains.plugins.groovy.lang.resolve.NonCodeMembersContributor;
+import org.jetbrains.plugins.groovy.lang.resolve.noncode.GdkMethodDispatchTable;
 
 import jakarta.annotation.Nonnull;
 import java.util.List;
@@ -43,33 +43,10 @@ public class DGMMemberContributor extends NonCodeMembersContributor {
                                      ResolveState state) {
     Project project = place.getProject();
     GlobalSearchScope resolveScope = place.getResolveScope();
-    JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
 
     Pair<List<String>, List<String>> extensions = GroovyExtensionProvider.getInstance(project).collectExtensions(resolveScope);
 
-    List<String> instanceCategories = extensions.getFirst();
-    List<String> staticCategories = extensions.getSecond();
-
-    if (!processCategories(qualifierType, processor, state, project, resolveScope, facade, instanceCategories, false)) return;
-    if (!processCategories(qualifierType, processor, state, project, resolveScope, facade, staticCategories, true)) return;
-  }
-
-  private static boolean processCategories(PsiType qualifierType,
-                                           PsiScopeProcessor processor,
-                                           ResolveState state,
-                                           Project project,
-                                           GlobalSearchScope resolveScope,
-                                           JavaPsiFacade facade,
-                                           List<String> instanceCategories,
-                                           boolean isStatic) {
-    for (String category : instanceCategories) {
-      PsiClass clazz = facade.findClass(category, resolveScope);
-      if (clazz != null) {
-        if (!GdkMethodHolder.getHolderForClass(clazz, isStatic, resolveScope).processMethods(processor, state, qualifierType, project)) {
-          return false;
-        }
-      }
-    }
-    return true;
+    GdkMethodDispatchTable table = GdkMethodDispatchTable.getTable(project, resolveScope, extensions.getFirst(), extensions.getSecond());
+    table.processMethods(processor, state, qualifierType, project);
   }
 }
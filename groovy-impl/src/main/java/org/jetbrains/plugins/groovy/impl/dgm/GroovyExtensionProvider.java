@@ -23,19 +23,30 @@ import consulo.annotation.component.ComponentScope;
 import consulo.annotation.component.ServiceAPI;
 import consulo.annotation.component.ServiceImpl;
 import consulo.application.Application;
+import consulo.application.util.CachedValueProvider;
+import consulo.application.util.CachedValuesManager;
+import consulo.component.util.SimpleModificationTracker;
 import consulo.language.psi.PsiDirectory;
+import consulo.language.psi.PsiElement;
 import consulo.language.psi.PsiFile;
+import consulo.language.psi.PsiManager;
+import consulo.language.psi.event.PsiTreeChangeAdapter;
+import consulo.language.psi.event.PsiTreeChangeEvent;
 import consulo.language.psi.scope.GlobalSearchScope;
+import consulo.module.content.ProjectRootManager;
 import consulo.project.Project;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.lang.Pair;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import jakarta.annotation.Nonnull;
 import org.jetbrains.annotations.NonNls;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Max Medvedev
@@ -47,17 +58,91 @@ public class GroovyExtensionProvider {
   @NonNls
   public static final String ORG_CODEHAUS_GROOVY_RUNTIME_EXTENSION_MODULE = "org.codehaus.groovy.runtime.ExtensionModule";
   private final Project myProject;
+  /**
+   * Changed on edits of extension module descriptors and on file or directory structure changes which may add or remove them
+   */
+  private final SimpleModificationTracker myDescriptorsTracker = new SimpleModificationTracker();
 
   @Inject
   public GroovyExtensionProvider(Project project) {
     myProject = project;
+
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event);
+      }
+
+      @Override
+      public void childRemoved(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event);
+      }
+
+      @Override
+      public void childReplaced(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event);
+      }
+
+      @Override
+      public void childrenChanged(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event);
+      }
+
+      @Override
+      public void childMoved(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event);
+      }
+
+      @Override
+      public void propertyChanged(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event);
+      }
+    }, project);
+  }
+
+  private void treeChanged(@Nonnull PsiTreeChangeEvent event) {
+    PsiFile file = event.getFile();
+    if (file != null) {
+      if (ORG_CODEHAUS_GROOVY_RUNTIME_EXTENSION_MODULE.equals(file.getName())) {
+        myDescriptorsTracker.incModificationCount();
+      }
+      return;
+    }
+    // outside of any file: files or directories were created, deleted, moved or renamed
+    PsiElement child = event.getChild();
+    if (child == null || child instanceof PsiFile || child instanceof PsiDirectory) {
+      myDescriptorsTracker.incModificationCount();
+    }
   }
 
   public static GroovyExtensionProvider getInstance(Project project) {
     return project.getInstance(GroovyExtensionProvider.class);
   }
 
+  /**
+   * @return qualified names of instance and static extension classes declared by extension modules in {@code resolveScope}.
+   * Results are cached per scope until roots or extension module descriptors change.
+   */
   public Pair<List<String>, List<String>> collectExtensions(GlobalSearchScope resolveScope) {
+    Map<GlobalSearchScope, Pair<List<String>, List<String>>> cache =
+      CachedValuesManager.getManager(myProject).getCachedValue(myProject, new CachedValueProvider<Map<GlobalSearchScope, Pair<List<String>, List<String>>>>() {
+        @Override
+        public Result<Map<GlobalSearchScope, Pair<List<String>, List<String>>>> compute() {
+          return Result.create(new ConcurrentHashMap<GlobalSearchScope, Pair<List<String>, List<String>>>(),
+                               myDescriptorsTracker,
+                               ProjectRootManager.getInstance(myProject));
+        }
+      });
+
+    Pair<List<String>, List<String>> result = cache.get(resolveScope);
+    if (result == null) {
+      result = doCollectExtensions(resolveScope);
+      cache.put(resolveScope, result);
+    }
+    return result;
+  }
+
+  private Pair<List<String>, List<String>> doCollectExtensions(GlobalSearchScope resolveScope) {
     PsiJavaPackage aPackage = JavaPsiFacade.getInstance(myProject).findPackage("META-INF.services");
     if (aPackage == null) {
       return new Pair<List<String>, List<String>>(Collections.<String>emptyList(), Collections.<String>emptyList());
@@ -77,7 +162,7 @@ public class GroovyExtensionProvider {
       }
     }
 
-    return new Pair<List<String>, List<String>>(instanceClasses, staticClasses);
+    return new Pair<List<String>, List<String>>(Collections.unmodifiableList(instanceClasses), Collections.unmodifiableList(staticClasses));
   }
 
   private static void collectClasses(IProperty pr, List<String> classes) {
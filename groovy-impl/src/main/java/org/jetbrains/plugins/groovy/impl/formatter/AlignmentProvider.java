@@ -21,16 +21,50 @@ import consulo.language.psi.PsiElement;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import java.util.*;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 /**
+ * Groups elements which should share an alignment. Groups are kept in a union-find structure keyed by element identity;
+ * the alignment, anchor and backward shift flag of a group are stored on its root.
+ *
  * @author Max Medvedev
  */
 public class AlignmentProvider {
-  private final Map<PsiElement, Set<PsiElement>> myTree = new HashMap<PsiElement, Set<PsiElement>>();
-  private final Map<Set<PsiElement>, Alignment> myAlignments = new HashMap<Set<PsiElement>, Alignment>();
-  private final Map<Set<PsiElement>, Boolean> myAllowBackwardShift = new HashMap<Set<PsiElement>, Boolean>();
-  private final Map<Set<PsiElement>, Alignment.Anchor> myAnchor = new HashMap<Set<PsiElement>, Alignment.Anchor>();
+  private final Map<PsiElement, Group> myGroups = new IdentityHashMap<PsiElement, Group>();
+
+  private static class Group {
+    private Group myParent = this;
+    private int myRank;
+    @Nullable
+    private Boolean myAllowBackwardShift;
+    @Nullable
+    private Alignment.Anchor myAnchor;
+    @Nullable
+    private Alignment myAlignment;
+
+    private Group(@Nullable Boolean allowBackwardShift, @Nullable Alignment.Anchor anchor) {
+      myAllowBackwardShift = allowBackwardShift;
+      myAnchor = anchor;
+    }
+
+    @Nonnull
+    private Group findRoot() {
+      Group group = this;
+      while (group.myParent != group) {
+        group.myParent = group.myParent.myParent;
+        group = group.myParent;
+      }
+      return group;
+    }
+  }
+
+  @Nullable
+  private Group findGroup(@Nonnull PsiElement element) {
+    Group group = myGroups.get(element);
+    return group == null ? null : group.findRoot();
+  }
 
   public void addPair(@Nonnull PsiElement e1, @Nonnull PsiElement e2, @Nullable Boolean allowBackwardShift) {
     addPair(e1, e2, allowBackwardShift, null);
@@ -39,80 +73,64 @@ public class AlignmentProvider {
   public void addPair(@Nonnull PsiElement e1, @Nonnull PsiElement e2, @Nullable Boolean allowBackwardShift, @Nullable Alignment.Anchor anchor) {
     assert e1 != e2;
 
-    Set<PsiElement> set1 = myTree.get(e1);
-    Set<PsiElement> set2 = myTree.get(e2);
-
-    if (set1 != null && set2 != null) {
-      assert (!myAlignments.containsKey(set1) || !myAlignments.containsKey(set2));
-      assert(myAllowBackwardShift.get(set1).booleanValue() == myAllowBackwardShift.get(set2).booleanValue());
-      assert(myAnchor.get(set1) == myAnchor.get(set2));
-      if (allowBackwardShift != null) {
-        assert(myAllowBackwardShift.get(set1).booleanValue() == allowBackwardShift.booleanValue());
-      }
-      if (anchor != null) {
-        assert(myAnchor.get(set1) == anchor);
-      }
-
-      if (myAlignments.containsKey(set2)) {
-        for (Iterator<PsiElement> iterator = set1.iterator(); iterator.hasNext(); ) {
-          PsiElement element = iterator.next();
-          iterator.remove();
+    Group group1 = findGroup(e1);
+    Group group2 = findGroup(e2);
 
-          addInternal(set2, element);
-        }
+    if (group1 != null && group2 != null) {
+      if (group1 == group2) {
+        return;
       }
-      else {
-        set1.addAll(set2);
-        for (Iterator<PsiElement> iterator = set2.iterator(); iterator.hasNext(); ) {
-          PsiElement element = iterator.next();
-          iterator.remove();
-
-          addInternal(set1, element);
-        }
-      }
-    }
-    else if (set1 != null) {
+      assert group1.myAlignment == null || group2.myAlignment == null;
+      assert Objects.equals(group1.myAllowBackwardShift, group2.myAllowBackwardShift);
+      assert group1.myAnchor == group2.myAnchor;
       if (allowBackwardShift != null) {
-        assert myAllowBackwardShift.get(set1).booleanValue() == allowBackwardShift.booleanValue();
+        assert Objects.equals(group1.myAllowBackwardShift, allowBackwardShift);
       }
       if (anchor != null) {
-        assert myAnchor.get(set1) == anchor;
+        assert group1.myAnchor == anchor;
       }
-      addInternal(set1, e2);
+      union(group1, group2);
     }
-    else if (set2 != null) {
-      if (allowBackwardShift != null) {
-        assert(myAllowBackwardShift.get(set2).booleanValue() == allowBackwardShift.booleanValue());
-      }
-      if (anchor != null) {
-        assert(myAnchor.get(set2) == anchor);
-      }
-      addInternal(set2, e1);
+    else if (group1 != null) {
+      checkAttributes(group1, allowBackwardShift, anchor);
+      myGroups.put(e2, group1);
+    }
+    else if (group2 != null) {
+      checkAttributes(group2, allowBackwardShift, anchor);
+      myGroups.put(e1, group2);
     }
     else {
-      HashSet<PsiElement> set = createHashSet();
-      addInternal(set, e1);
-      addInternal(set, e2);
-      myAllowBackwardShift.put(set, allowBackwardShift);
-      myAnchor.put(set, anchor);
+      Group group = new Group(allowBackwardShift, anchor);
+      myGroups.put(e1, group);
+      myGroups.put(e2, group);
     }
   }
 
-  private void addInternal(@Nonnull Set<PsiElement> set, @Nonnull PsiElement element) {
-    myTree.put(element, set);
-    set.add(element);
+  private static void checkAttributes(@Nonnull Group group, @Nullable Boolean allowBackwardShift, @Nullable Alignment.Anchor anchor) {
+    if (allowBackwardShift != null) {
+      assert Objects.equals(group.myAllowBackwardShift, allowBackwardShift);
+    }
+    if (anchor != null) {
+      assert group.myAnchor == anchor;
+    }
   }
 
-  @Nonnull
-  private static HashSet<PsiElement> createHashSet() {
-    return new HashSet<PsiElement>() {
-      private final int myhash = new Object().hashCode();
-
-      @Override
-      public int hashCode() {
-        return myhash;
-      }
-    };
+  /**
+   * Links the roots by rank. The merged group keeps the attributes of the group whose alignment was already created,
+   * or of {@code root1} if none was.
+   */
+  private static void union(@Nonnull Group root1, @Nonnull Group root2) {
+    Group source = root2.myAlignment != null ? root2 : root1;
+    Group parent = root1.myRank >= root2.myRank ? root1 : root2;
+    Group child = parent == root1 ? root2 : root1;
+
+    child.myParent = parent;
+    if (parent.myRank == child.myRank) {
+      parent.myRank++;
+    }
+    parent.myAllowBackwardShift = source.myAllowBackwardShift;
+    parent.myAnchor = source.myAnchor;
+    parent.myAlignment = source.myAlignment;
   }
 
   public void addPair(@Nonnull ASTNode node1, @Nonnull ASTNode node2, boolean allowBackwardShift) {
@@ -124,33 +142,25 @@ public class AlignmentProvider {
   }
 
   private void add(@Nonnull PsiElement element, boolean allowBackwardShift, @Nonnull Alignment.Anchor anchor) {
-    if (myTree.get(element) != null) return;
+    if (myGroups.containsKey(element)) return;
 
-    HashSet<PsiElement> set = createHashSet();
-    set.add(element);
-    myTree.put(element, set);
-    myAllowBackwardShift.put(set, allowBackwardShift);
-    myAnchor.put(set, anchor);
+    myGroups.put(element, new Group(allowBackwardShift, anchor));
   }
 
   @Nullable
   public Alignment getAlignment(@Nonnull PsiElement e) {
-    Set<PsiElement> set = myTree.get(e);
-    if (set == null) {
+    Group group = findGroup(e);
+    if (group == null) {
       return null;
     }
 
-    Alignment alignment = myAlignments.get(set);
-    if (alignment != null) return alignment;
+    if (group.myAlignment != null) return group.myAlignment;
 
-    Alignment.Anchor anchor = myAnchor.get(set);
-    if (anchor == null) {
-      myAnchor.put(set, Alignment.Anchor.LEFT);
-      anchor = Alignment.Anchor.LEFT;
+    if (group.myAnchor == null) {
+      group.myAnchor = Alignment.Anchor.LEFT;
     }
-    alignment = Alignment.createAlignment(myAllowBackwardShift.get(set), anchor);
-    myAlignments.put(set, alignment);
-    return alignment;
+    group.myAlignment = Alignment.createAlignment(group.myAllowBackwardShift, group.myAnchor);
+    return group.myAlignment;
   }
 
   @Nonnull
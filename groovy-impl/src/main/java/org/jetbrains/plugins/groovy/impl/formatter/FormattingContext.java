@@ -27,14 +27,17 @@ public class FormattingContext {
   private final CommonCodeStyleSettings mySettings;
   private final GroovyCodeStyleSettings myGroovySettings;
   private final AlignmentProvider myAlignmentProvider;
+  private final FormattingTokenModel myTokenModel;
 
   private final boolean myInsidePlainGString;
 
   public FormattingContext(@Nonnull CommonCodeStyleSettings settings,
                            @Nonnull AlignmentProvider provider,
-                           @Nonnull GroovyCodeStyleSettings groovySettings, boolean insidePlainGString) {
+                           @Nonnull GroovyCodeStyleSettings groovySettings,
+                           @Nonnull FormattingTokenModel tokenModel, boolean insidePlainGString) {
     mySettings = settings;
     myAlignmentProvider = provider;
+    myTokenModel = tokenModel;
     myGroovySettings = groovySettings;
     myInsidePlainGString = insidePlainGString;
   }
@@ -51,8 +54,12 @@ public class FormattingContext {
     return myGroovySettings;
   }
 
+  public FormattingTokenModel getTokenModel() {
+    return myTokenModel;
+  }
+
   public FormattingContext createContext(boolean insidePlainGString) {
-    return new FormattingContext(mySettings, myAlignmentProvider, myGroovySettings, insidePlainGString);
+    return new FormattingContext(mySettings, myAlignmentProvider, myGroovySettings, myTokenModel, insidePlainGString);
   }
 
   public boolean isInsidePlainGString() {
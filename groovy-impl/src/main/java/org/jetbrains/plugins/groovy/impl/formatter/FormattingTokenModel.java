@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.formatter;
+
+import consulo.document.util.TextRange;
+import consulo.language.ast.ASTNode;
+import consulo.language.ast.IElementType;
+import consulo.language.codeStyle.FormatterUtil;
+import consulo.util.collection.primitive.objects.ObjectIntMap;
+import consulo.util.collection.primitive.objects.ObjectMaps;
+import consulo.util.lang.StringUtil;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.jetbrains.plugins.groovy.lang.psi.impl.PsiImplUtil;
+
+import java.util.Arrays;
+
+/**
+ * Tree facts the spacing processors ask about every pair of neighbour blocks: offsets, line breaks inside a node,
+ * previous non-whitespace leaf and sibling, and the node pair the spacing between two blocks is decided by.
+ * <p>
+ * The whole file is indexed in one pass into flat arrays in preorder, so the questions are answered without walking
+ * the tree or building node text. Small formattings (typing, enter) don't ask enough to pay for the pass, so the model
+ * is built only after {@link #BUILD_THRESHOLD} queries; until then, and for nodes which are not in the model, the
+ * answers are computed from the tree. The model is valid while the tree is not changed, i.e. while the formatter
+ * builds its blocks and spacings, and belongs to a single formatting model.
+ */
+public class FormattingTokenModel {
+  private static final int BUILD_THRESHOLD = 500;
+
+  private final ASTNode myRoot;
+  private int myQueries;
+
+  private ObjectIntMap<ASTNode> myIndices;
+  private ASTNode[] myNodes;
+  private IElementType[] myTypes;
+  private int[] myParents;
+  private int[] myStartOffsets;
+  /**
+   * Preorder index following the node's subtree, whose start offset is the end offset of the node
+   */
+  private int[] mySubtreeEnds;
+  /**
+   * Number of line breaks before the node's start offset, one more element for the end of the file
+   */
+  private int[] myLineBreaks;
+  private int[] myPrevLeaves;
+  private int[] myPrevSiblings;
+  private int[] mySpacingAnchors;
+  private int mySize;
+
+  public FormattingTokenModel(@Nonnull ASTNode root) {
+    myRoot = root;
+  }
+
+  /**
+   * @return the node itself if it has a non-whitespace previous sibling, otherwise the closest such ancestor; the
+   * spacing before the node is decided between this anchor and its {@link #getPreviousNonWhitespaceSibling previous sibling}
+   */
+  @Nullable
+  public ASTNode getSpacingAnchor(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    if (index >= 0) {
+      return mySpacingAnchors[index] >= 0 ? myNodes[mySpacingAnchors[index]] : null;
+    }
+
+    for (ASTNode current = node; current != null; current = current.getTreeParent()) {
+      if (findPreviousNonWhitespaceSibling(current) != null) {
+        return current;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  public ASTNode getPreviousNonWhitespaceSibling(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    if (index >= 0) {
+      return myPrevSiblings[index] >= 0 ? myNodes[myPrevSiblings[index]] : null;
+    }
+    return findPreviousNonWhitespaceSibling(node);
+  }
+
+  /**
+   * Same as {@link FormatterUtil#getPreviousNonWhitespaceLeaf(ASTNode)}
+   */
+  @Nullable
+  public ASTNode getPreviousNonWhitespaceLeaf(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    if (index >= 0) {
+      return myPrevLeaves[index] >= 0 ? myNodes[myPrevLeaves[index]] : null;
+    }
+    return FormatterUtil.getPreviousNonWhitespaceLeaf(node);
+  }
+
+  public boolean containsLineBreaks(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    if (index >= 0) {
+      return myLineBreaks[mySubtreeEnds[index]] > myLineBreaks[index];
+    }
+    return StringUtil.containsLineBreak(node.getChars());
+  }
+
+  public int getStartOffset(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    return index >= 0 ? myStartOffsets[index] : node.getStartOffset();
+  }
+
+  public int getEndOffset(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    return index >= 0 ? myStartOffsets[mySubtreeEnds[index]] : node.getTextRange().getEndOffset();
+  }
+
+  @Nonnull
+  public TextRange getTextRange(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    return index >= 0 ? new TextRange(myStartOffsets[index], myStartOffsets[mySubtreeEnds[index]]) : node.getTextRange();
+  }
+
+  @Nullable
+  public IElementType getParentType(@Nonnull ASTNode node) {
+    int index = indexOf(node);
+    if (index >= 0) {
+      return myParents[index] >= 0 ? myTypes[myParents[index]] : null;
+    }
+    ASTNode parent = node.getTreeParent();
+    return parent != null ? parent.getElementType() : null;
+  }
+
+  public static boolean isWhiteSpace(@Nullable ASTNode node) {
+    return node != null && (PsiImplUtil.isWhiteSpaceOrNls(node) || node.getTextLength() == 0);
+  }
+
+  @Nullable
+  private static ASTNode findPreviousNonWhitespaceSibling(@Nonnull ASTNode node) {
+    ASTNode prev = node.getTreePrev();
+    while (prev != null && isWhiteSpace(prev)) {
+      prev = prev.getTreePrev();
+    }
+    return prev;
+  }
+
+  private int indexOf(@Nonnull ASTNode node) {
+    if (myIndices == null) {
+      if (++myQueries < BUILD_THRESHOLD) {
+        return -1;
+      }
+      build();
+    }
+    return myIndices.containsKey(node) ? myIndices.getInt(node) : -1;
+  }
+
+  private void build() {
+    myIndices = ObjectMaps.newObjectIntHashMap();
+    allocate(1024);
+
+    int offset = 0;
+    int lineBreaks = 0;
+    int lastLeaf = -1;
+    ASTNode node = myRoot;
+    int parent = -1;
+    while (true) {
+      int index = add(node, parent, offset, lineBreaks, lastLeaf);
+      ASTNode child = node.getFirstChildNode();
+      if (child != null) {
+        parent = index;
+        node = child;
+        continue;
+      }
+
+      CharSequence text = node.getChars();
+      offset += text.length();
+      lineBreaks += StringUtil.countNewLines(text);
+      if (!FormatterUtil.isWhitespaceOrEmpty(node)) {
+        lastLeaf = index;
+      }
+      mySubtreeEnds[index] = mySize;
+
+      while (node != myRoot && node.getTreeNext() == null) {
+        mySubtreeEnds[parent] = mySize;
+        node = myNodes[parent];
+        parent = myParents[parent];
+      }
+      if (node == myRoot) {
+        break;
+      }
+      node = node.getTreeNext();
+    }
+
+    // the element after the last node stands for the end of the file
+    allocate(mySize + 1);
+    myStartOffsets[mySize] = offset;
+    myLineBreaks[mySize] = lineBreaks;
+  }
+
+  private int add(@Nonnull ASTNode node, int parent, int offset, int lineBreaks, int lastLeaf) {
+    if (mySize == myNodes.length) {
+      allocate(mySize * 2);
+    }
+    int index = mySize++;
+    myNodes[index] = node;
+    myTypes[index] = node.getElementType();
+    myParents[index] = parent;
+    myStartOffsets[index] = offset;
+    myLineBreaks[index] = lineBreaks;
+    myPrevLeaves[index] = lastLeaf;
+
+    ASTNode prev = node == myRoot ? null : findPreviousNonWhitespaceSibling(node);
+    myPrevSiblings[index] = prev != null ? myIndices.getInt(prev) : -1;
+    mySpacingAnchors[index] = prev != null ? index : parent >= 0 ? mySpacingAnchors[parent] : -1;
+    myIndices.putInt(node, index);
+    return index;
+  }
+
+  private void allocate(int capacity) {
+    if (myNodes == null) {
+      myNodes = new ASTNode[capacity];
+      myTypes = new IElementType[capacity];
+      myParents = new int[capacity];
+      myStartOffsets = new int[capacity];
+      mySubtreeEnds = new int[capacity];
+      myLineBreaks = new int[capacity];
+      myPrevLeaves = new int[capacity];
+      myPrevSiblings = new int[capacity];
+      mySpacingAnchors = new int[capacity];
+    }
+    else if (capacity > myNodes.length) {
+      myNodes = Arrays.copyOf(myNodes, capacity);
+      myTypes = Arrays.copyOf(myTypes, capacity);
+      myParents = Arrays.copyOf(myParents, capacity);
+      myStartOffsets = Arrays.copyOf(myStartOffsets, capacity);
+      mySubtreeEnds = Arrays.copyOf(mySubtreeEnds, capacity);
+      myLineBreaks = Arrays.copyOf(myLineBreaks, capacity);
+      myPrevLeaves = Arrays.copyOf(myPrevLeaves, capacity);
+      myPrevSiblings = Arrays.copyOf(myPrevSiblings, capacity);
+      mySpacingAnchors = Arrays.copyOf(mySpacingAnchors, capacity);
+    }
+  }
+}
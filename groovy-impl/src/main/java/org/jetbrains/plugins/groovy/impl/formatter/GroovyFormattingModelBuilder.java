@@ -51,6 +51,21 @@ public class GroovyFormattingModelBuilder implements FormattingModelBuilder {
     assert node != null;
     PsiFile containingFile = element.getContainingFile().getViewProvider().getPsi(GroovyFileType.GROOVY_LANGUAGE);
     assert containingFile != null : element.getContainingFile();
+    GroovyBlock block = element == containingFile ? GroovyParallelReformatter.takePreparedBlock(containingFile, settings) : null;
+    if (block == null) {
+      block = createRootBlock(containingFile, element, settings);
+    }
+    return new GroovyFormattingModel(containingFile,
+                                     block,
+                                     FormattingDocumentModel.create(containingFile));
+
+  }
+
+  /**
+   * Creates the file block with its own alignments and token model. Flying geese alignments are calculated for {@code scope}.
+   */
+  @Nonnull
+  static GroovyBlock createRootBlock(@Nonnull PsiFile containingFile, @Nonnull PsiElement scope, @Nonnull CodeStyleSettings settings) {
     ASTNode astNode = containingFile.getNode();
     assert astNode != null;
     CommonCodeStyleSettings groovySettings = settings.getCommonSettings(GroovyFileType.GROOVY_LANGUAGE);
@@ -58,7 +73,7 @@ public class GroovyFormattingModelBuilder implements FormattingModelBuilder {
 
     final AlignmentProvider alignments = new AlignmentProvider();
     if (customSettings.USE_FLYING_GEESE_BRACES) {
-      element.accept(new PsiRecursiveElementVisitor() {
+      scope.accept(new PsiRecursiveElementVisitor() {
         @Override
         public void visitElement(PsiElement element) {
           if (GeeseUtil.isClosureRBrace(element)) {
@@ -70,14 +85,11 @@ public class GroovyFormattingModelBuilder implements FormattingModelBuilder {
         }
       });
     }
-    GroovyBlock block = new GroovyBlock(astNode,
-                                              Indent.getAbsoluteNoneIndent(),
-                                              null,
-                                              new FormattingContext(groovySettings, alignments, customSettings, false));
-    return new GroovyFormattingModel(containingFile,
-                                     block,
-                                     FormattingDocumentModel.create(containingFile));
-
+    return new GroovyBlock(astNode,
+                           Indent.getAbsoluteNoneIndent(),
+                           null,
+                           new FormattingContext(groovySettings, alignments, customSettings,
+                                                 new FormattingTokenModel(astNode), false));
   }
 
   @Nonnull
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.impl.formatter;
+
+import consulo.application.ApplicationManager;
+import consulo.application.ReadAction;
+import consulo.application.progress.ProgressIndicator;
+import consulo.component.ProcessCanceledException;
+import consulo.document.Document;
+import consulo.language.codeStyle.CodeStyleManager;
+import consulo.language.codeStyle.CodeStyleSettings;
+import consulo.language.codeStyle.CodeStyleSettingsManager;
+import consulo.language.editor.WriteCommandAction;
+import consulo.language.psi.PsiDocumentManager;
+import consulo.language.psi.PsiFile;
+import consulo.logging.Logger;
+import consulo.project.Project;
+import consulo.util.concurrent.ConcurrencyUtil;
+import consulo.util.dataholder.Key;
+import consulo.util.dataholder.UserDataHolderEx;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.jetbrains.plugins.groovy.GroovyFileType;
+import org.jetbrains.plugins.groovy.impl.formatter.blocks.GroovyBlock;
+import org.jetbrains.plugins.groovy.lang.psi.GroovyFile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reformats whole Groovy files, e.g. for a bulk reformat of many files, with their formatting blocks built ahead on several
+ * threads.
+ * <p>
+ * The block tree of a file (sub-blocks, alignments and spacings) depends on the PSI and the settings only, so it is built on
+ * the pool, for every file in its own read action, and kept with the file. The files are then reformatted the usual way by
+ * {@link CodeStyleManager#reformat}, so all the format processors run, and {@link GroovyFormattingModelBuilder} takes the
+ * prepared tree instead of building a new one if neither the file nor the settings changed meanwhile.
+ * <p>
+ * Only the tree building leaves the event dispatch thread: whitespace is still computed and applied there by the formatter,
+ * and the work on one file is not split. Files are handled in batches of {@link #BATCH_SIZE}, so that the trees of a large
+ * project are not all kept at once. The time spent on both sides is logged after each run.
+ */
+public class GroovyParallelReformatter {
+  private static final Logger LOG = Logger.getInstance(GroovyParallelReformatter.class);
+  private static final Key<PreparedBlock> PREPARED_BLOCK = Key.create("groovy.reformatter.prepared.block");
+
+  private static final int BATCH_SIZE = 64;
+  private static final int POOL_SIZE = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+  private static final ThreadPoolExecutor ourPool = new ThreadPoolExecutor(POOL_SIZE,
+                                                                           POOL_SIZE,
+                                                                           1,
+                                                                           TimeUnit.SECONDS,
+                                                                           new LinkedBlockingQueue<Runnable>(),
+                                                                           ConcurrencyUtil.newNamedThreadFactory("Groovy Reformatter"));
+
+  static {
+    ourPool.allowCoreThreadTimeOut(true);
+  }
+
+  private final Project myProject;
+  private final AtomicLong myPrepareNanos = new AtomicLong();
+  /**
+   * Changed on the event dispatch thread only
+   */
+  private long myApplyNanos;
+
+  public GroovyParallelReformatter(@Nonnull Project project) {
+    myProject = project;
+  }
+
+  /**
+   * Must be called on a background thread outside of read and write actions. Non-Groovy files are skipped.
+   * <p>
+   * The trees of the next batch are built while the files of the current one are formatted, each file in a command of its
+   * own, as the platform's reformat does, so that the event dispatch thread is never held for more than one file.
+   */
+  public void reformat(@Nonnull Collection<? extends PsiFile> files, @Nonnull ProgressIndicator indicator) {
+    List<PsiFile> all = new ArrayList<>(files);
+    long start = System.nanoTime();
+    int used = 0;
+    Future<List<PsiFile>> next = prepareBatch(all, 0, indicator);
+    try {
+      for (int batchStart = 0; batchStart < all.size(); batchStart += BATCH_SIZE) {
+        List<PsiFile> batch = getBatch(next);
+        next = batchStart + BATCH_SIZE < all.size() ? prepareBatch(all, batchStart + BATCH_SIZE, indicator) : null;
+        try {
+          for (int i = 0; i < batch.size(); i++) {
+            indicator.checkCanceled();
+            List<PsiFile> file = Collections.singletonList(batch.get(i));
+            int[] result = new int[1];
+            ApplicationManager.getApplication().invokeAndWait(() -> result[0] = apply(file));
+            used += result[0];
+            indicator.setFraction((double)(batchStart + i + 1) / all.size());
+          }
+        }
+        finally {
+          clear(batch);
+        }
+      }
+    }
+    finally {
+      if (next != null) {
+        // a cancelled batch stops early, but what it prepared must not stay with the files
+        clear(getPreparedQuietly(next));
+      }
+    }
+
+    LOG.info("Reformatted " + all.size() + " files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, " +
+             used + " with prepared blocks; blocks built in " + TimeUnit.NANOSECONDS.toMillis(myPrepareNanos.get()) +
+             " ms of pool time, files formatted in " + TimeUnit.NANOSECONDS.toMillis(myApplyNanos) + " ms on the event dispatch thread");
+  }
+
+  @Nonnull
+  private Future<List<PsiFile>> prepareBatch(@Nonnull List<PsiFile> files, int start, @Nonnull ProgressIndicator indicator) {
+    List<PsiFile> batch = files.subList(start, Math.min(files.size(), start + BATCH_SIZE));
+    // not on our pool, which runs the tasks this one waits for
+    return ApplicationManager.getApplication().executeOnPooledThread(() -> prepare(batch, indicator));
+  }
+
+  @Nonnull
+  private static List<PsiFile> getBatch(@Nonnull Future<List<PsiFile>> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      throw new ProcessCanceledException();
+    }
+    catch (ExecutionException e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Nonnull
+  private static List<PsiFile> getPreparedQuietly(@Nonnull Future<List<PsiFile>> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException | ExecutionException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  @Nonnull
+  private static RuntimeException rethrow(@Nonnull ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException)cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error)cause;
+    }
+    throw new RuntimeException(cause);
+  }
+
+  /**
+   * Builds the block trees of the files on the pool. Must be called on a background thread outside of read and write actions.
+   *
+   * @return the Groovy files, to be passed to {@link #apply}
+   */
+  @Nonnull
+  public List<PsiFile> prepare(@Nonnull Collection<? extends PsiFile> files, @Nonnull ProgressIndicator indicator) {
+    List<Future<PsiFile>> futures = new ArrayList<>(files.size());
+    for (PsiFile file : files) {
+      futures.add(ourPool.submit(() -> indicator.isCanceled() ? null : ReadAction.compute(() -> prepareFile(file))));
+    }
+
+    List<PsiFile> result = new ArrayList<>(futures.size());
+    try {
+      for (Future<PsiFile> future : futures) {
+        PsiFile file = future.get();
+        if (file != null) {
+          result.add(file);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      clear(result);
+      throw new ProcessCanceledException();
+    }
+    catch (ExecutionException e) {
+      clear(result);
+      throw rethrow(e);
+    }
+    finally {
+      for (Future<PsiFile> future : futures) {
+        future.cancel(false);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reformats the prepared files in one write command. Must be called on the event dispatch thread.
+   *
+   * @return number of files formatted with their prepared block tree
+   */
+  public int apply(@Nonnull List<PsiFile> files) {
+    long start = System.nanoTime();
+    int[] used = new int[1];
+    try {
+      WriteCommandAction.runWriteCommandAction(myProject, () -> {
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(myProject);
+        CodeStyleManager codeStyleManager = CodeStyleManager.getInstance(myProject);
+        for (PsiFile file : files) {
+          if (!file.isValid()) continue;
+
+          Document document = documentManager.getDocument(file);
+          if (document != null) {
+            documentManager.commitDocument(document);
+          }
+          PreparedBlock prepared = file.getUserData(PREPARED_BLOCK);
+          codeStyleManager.reformat(file);
+          if (prepared != null && prepared.myUsed) {
+            used[0]++;
+          }
+        }
+      });
+    }
+    finally {
+      clear(files);
+      myApplyNanos += System.nanoTime() - start;
+    }
+    return used[0];
+  }
+
+  /**
+   * @return the Groovy file, or null if it is not one
+   */
+  @Nullable
+  private PsiFile prepareFile(@Nonnull PsiFile file) {
+    if (!file.isValid() || !(file.getViewProvider().getPsi(GroovyFileType.GROOVY_LANGUAGE) instanceof GroovyFile)) {
+      return null;
+    }
+
+    PsiFile groovyFile = file.getViewProvider().getPsi(GroovyFileType.GROOVY_LANGUAGE);
+    PsiDocumentManager documentManager = PsiDocumentManager.getInstance(myProject);
+    Document document = documentManager.getDocument(groovyFile);
+    if (document != null && !documentManager.isCommitted(document)) {
+      // the PSI is going to change, so the file is formatted from scratch
+      return groovyFile;
+    }
+
+    long start = System.nanoTime();
+    try {
+      CodeStyleSettings settings = CodeStyleSettingsManager.getSettings(myProject);
+      GroovyBlock block = GroovyFormattingModelBuilder.createRootBlock(groovyFile, groovyFile, settings);
+      block.prepareTree();
+      groovyFile.putUserData(PREPARED_BLOCK, new PreparedBlock(groovyFile.getModificationStamp(), settings, block));
+    }
+    catch (ProcessCanceledException e) {
+      throw e;
+    }
+    catch (RuntimeException e) {
+      LOG.warn("Cannot prepare formatting blocks of " + groovyFile.getName(), e);
+    }
+    finally {
+      myPrepareNanos.addAndGet(System.nanoTime() - start);
+    }
+    return groovyFile;
+  }
+
+  private static void clear(@Nonnull List<PsiFile> files) {
+    for (PsiFile file : files) {
+      file.putUserData(PREPARED_BLOCK, null);
+    }
+  }
+
+  /**
+   * Takes the block tree prepared for the whole {@code file}, so that it is used by one formatter only
+   *
+   * @return the tree, or null if there is none or the file or the settings changed after it was built
+   */
+  @Nullable
+  static GroovyBlock takePreparedBlock(@Nonnull PsiFile file, @Nonnull CodeStyleSettings settings) {
+    PreparedBlock prepared = file.getUserData(PREPARED_BLOCK);
+    if (prepared == null || !((UserDataHolderEx)file).replace(PREPARED_BLOCK, prepared, null)) {
+      return null;
+    }
+    if (prepared.myStamp != file.getModificationStamp() || !prepared.mySettings.equals(settings)) {
+      return null;
+    }
+    prepared.myUsed = true;
+    return prepared.myBlock;
+  }
+
+  private static class PreparedBlock {
+    private final long myStamp;
+    private final CodeStyleSettings mySettings;
+    private final GroovyBlock myBlock;
+    private volatile boolean myUsed;
+
+    private PreparedBlock(long stamp, @Nonnull CodeStyleSettings settings, @Nonnull GroovyBlock block) {
+      myStamp = stamp;
+      mySettings = settings;
+      myBlock = block;
+    }
+  }
+}
@@ -50,8 +50,12 @@ import org.jetbrains.plugins.groovy.lang.psi.api.statements.expressions.GrComman
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.expressions.GrConditionalExpression;
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.params.GrParameterList;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Block implementation for Groovy formatter
@@ -70,6 +74,11 @@ public class GroovyBlock implements Block, GroovyElementTypes, ASTBlock {
 
   protected List<Block> mySubBlocks = null;
 
+  /**
+   * Spacings between neighbour sub-blocks computed by {@link #prepareTree()}, by the right block of the pair
+   */
+  private Map<Block, PreparedSpacing> myPreparedSpacings = null;
+
   public GroovyBlock(@Nonnull ASTNode node,
                      @Nonnull Indent indent,
                      @Nullable Wrap wrap,
@@ -137,6 +146,17 @@ public class GroovyBlock implements Block, GroovyElementTypes, ASTBlock {
    */
   @Nullable
   public Spacing getSpacing(Block child1, @Nonnull Block child2) {
+    if (myPreparedSpacings != null) {
+      PreparedSpacing prepared = myPreparedSpacings.get(child2);
+      if (prepared != null && prepared.myLeft == child1) {
+        return prepared.mySpacing;
+      }
+    }
+    return computeSpacing(child1, child2);
+  }
+
+  @Nullable
+  private Spacing computeSpacing(Block child1, @Nonnull Block child2) {
     if (child1 instanceof GroovyBlock && child2 instanceof GroovyBlock) {
       if (((GroovyBlock)child1).getNode() == ((GroovyBlock)child2).getNode()) {
         return Spacing.getReadOnlySpacing();
@@ -151,6 +171,44 @@ public class GroovyBlock implements Block, GroovyElementTypes, ASTBlock {
     return null;
   }
 
+  /**
+   * Builds the whole tree under this block, with alignments and the spacings between neighbour blocks, so that the
+   * formatter finds it ready. The tree may be built on any thread in a read action, and must not be used after the file
+   * changes.
+   */
+  public void prepareTree() {
+    Deque<Block> stack = new ArrayDeque<Block>();
+    stack.push(this);
+    while (!stack.isEmpty()) {
+      Block block = stack.pop();
+      List<Block> subBlocks = block.getSubBlocks();
+      if (block instanceof GroovyBlock) {
+        GroovyBlock groovyBlock = (GroovyBlock)block;
+        groovyBlock.getAlignment();
+        Map<Block, PreparedSpacing> spacings = new IdentityHashMap<Block, PreparedSpacing>(subBlocks.size());
+        for (int i = 1; i < subBlocks.size(); i++) {
+          Block left = subBlocks.get(i - 1);
+          Block right = subBlocks.get(i);
+          spacings.put(right, new PreparedSpacing(left, groovyBlock.computeSpacing(left, right)));
+        }
+        groovyBlock.myPreparedSpacings = spacings;
+      }
+      for (Block subBlock : subBlocks) {
+        stack.push(subBlock);
+      }
+    }
+  }
+
+  private static class PreparedSpacing {
+    private final Block myLeft;
+    private final Spacing mySpacing;
+
+    private PreparedSpacing(@Nonnull Block left, @Nullable Spacing spacing) {
+      myLeft = left;
+      mySpacing = spacing;
+    }
+  }
+
   @Nonnull
   public ChildAttributes getChildAttributes(int newChildIndex) {
     ASTNode astNode = getNode();
@@ -25,6 +25,7 @@ import consulo.language.psi.PsiElement;
 import org.jetbrains.plugins.groovy.GroovyLanguage;
 import org.jetbrains.plugins.groovy.impl.codeStyle.GroovyCodeStyleSettings;
 import org.jetbrains.plugins.groovy.impl.formatter.FormattingContext;
+import org.jetbrains.plugins.groovy.impl.formatter.FormattingTokenModel;
 import org.jetbrains.plugins.groovy.impl.formatter.GeeseUtil;
 import org.jetbrains.plugins.groovy.impl.formatter.blocks.GroovyBlock;
 import org.jetbrains.plugins.groovy.impl.formatter.blocks.ParameterListBlock;
@@ -69,11 +70,9 @@ import org.jetbrains.plugins.groovy.lang.psi.api.toplevel.GrTopStatement;
 import org.jetbrains.plugins.groovy.lang.psi.api.types.GrArrayTypeElement;
 import org.jetbrains.plugins.groovy.lang.psi.api.types.GrTypeArgumentList;
 import org.jetbrains.plugins.groovy.lang.psi.api.types.GrTypeParameterList;
-import org.jetbrains.plugins.groovy.lang.psi.impl.PsiImplUtil;
 import consulo.language.codeStyle.Spacing;
 import consulo.language.ast.ASTNode;
 import consulo.language.codeStyle.CommonCodeStyleSettings;
-import consulo.language.codeStyle.FormatterUtil;
 import consulo.language.impl.psi.SourceTreeToPsiMap;
 import consulo.language.ast.IElementType;
 import consulo.language.ast.TokenSet;
@@ -87,6 +86,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 
 	private final GroovyCodeStyleSettings myGroovySettings;
 	private final CommonCodeStyleSettings mySettings;
+	private final FormattingTokenModel myTokens;
 
 	private Spacing myResult;
 	private ASTNode myChild1;
@@ -98,6 +98,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 	{
 		mySettings = context.getSettings();
 		myGroovySettings = context.getGroovySettings();
+		myTokens = context.getTokenModel();
 
 		ASTNode node = block2.getNode();
 
@@ -150,24 +151,15 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 			return;
 		}
 
-		ASTNode treePrev = child.getTreePrev();
-		while(treePrev != null && isWhiteSpace(treePrev))
+		ASTNode anchor = myTokens.getSpacingAnchor(child);
+		if(anchor != null)
 		{
-			treePrev = treePrev.getTreePrev();
-		}
-
-		if(treePrev == null)
-		{
-			_init(child.getTreeParent());
-		}
-		else
-		{
-			myChild2 = child;
+			myChild2 = anchor;
 			myType2 = myChild2.getElementType();
 
-			myChild1 = treePrev;
+			myChild1 = myTokens.getPreviousNonWhitespaceSibling(anchor);
 			myType1 = myChild1.getElementType();
-			CompositeElement parent = (CompositeElement) treePrev.getTreeParent();
+			CompositeElement parent = (CompositeElement) myChild1.getTreeParent();
 			myParent = SourceTreeToPsiMap.treeElementToPsi(parent);
 		}
 	}
@@ -194,10 +186,10 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 			return false;
 		}
 
-		ASTNode prev = FormatterUtil.getPreviousNonWhitespaceLeaf(myChild2);
+		ASTNode prev = myTokens.getPreviousNonWhitespaceLeaf(myChild2);
 		if(prev != null && prev.getElementType() == GroovyTokenTypes.mNLS)
 		{
-			prev = FormatterUtil.getPreviousNonWhitespaceLeaf(prev);
+			prev = myTokens.getPreviousNonWhitespaceLeaf(prev);
 		}
 		if(prev != null && prev.getElementType() == GroovyTokenTypes.mSL_COMMENT)
 		{
@@ -526,8 +518,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		ASTNode rBraceAtTheEnd = GeeseUtil.getClosureRBraceAtTheEnd(myChild1);
 		if(myGroovySettings.USE_FLYING_GEESE_BRACES && myType2 == GroovyTokenTypes.mRCURLY && rBraceAtTheEnd != null)
 		{
-			String text = rBraceAtTheEnd.getTreeParent().getText();
-			if(text.indexOf('\n') < 0)
+			if(!myTokens.containsLineBreaks(rBraceAtTheEnd.getTreeParent()))
 			{
         /* the case:
        foo {
@@ -549,12 +540,12 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		{ //spaces between statements
 			boolean spacesWithinBraces = closure.getParent() instanceof GrStringInjection ? myGroovySettings
 					.SPACE_WITHIN_GSTRING_INJECTION_BRACES : mySettings.SPACE_WITHIN_BRACES;
-			createDependentLFSpacing(true, spacesWithinBraces, closure.getTextRange());
+			createDependentLFSpacing(true, spacesWithinBraces, getTextRange(closure));
 		}
 		else if(myType1 == GroovyTokenTypes.mCLOSABLE_BLOCK_OP)
 		{
 			myResult = GroovySpacingProcessorBasic.createDependentSpacingForClosure(mySettings, myGroovySettings,
-					closure, true);
+					myTokens, closure, true);
 		}
 		else if(myType1 == GroovyTokenTypes.mLCURLY && (myType2 == GroovyElementTypes.PARAMETERS_LIST || myType2 ==
 				GroovyTokenTypes.mCLOSABLE_BLOCK_OP))
@@ -581,7 +572,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		{
 			if(keepInOneLine)
 			{
-				createDependentLFSpacing(true, mySettings.SPACE_WITHIN_BRACES, block.getTextRange());
+				createDependentLFSpacing(true, mySettings.SPACE_WITHIN_BRACES, getTextRange(block));
 			}
 			else
 			{
@@ -593,7 +584,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		{
 			if(keepInOneLine)
 			{
-				createDependentLFSpacing(true, mySettings.SPACE_WITHIN_BRACES, block.getTextRange());
+				createDependentLFSpacing(true, mySettings.SPACE_WITHIN_BRACES, getTextRange(block));
 			}
 			else
 			{
@@ -615,8 +606,8 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 			else
 			{
 				PsiElement nameIdentifier = typeDefinition.getNameIdentifierGroovy();
-				int dependenceStart = nameIdentifier.getTextRange().getStartOffset();
-				TextRange range = new TextRange(dependenceStart, myChild1.getTextRange().getEndOffset());
+				int dependenceStart = myTokens.getStartOffset(nameIdentifier.getNode());
+				TextRange range = new TextRange(dependenceStart, myTokens.getEndOffset(myChild1));
 				createSpaceBeforeLBrace(mySettings.SPACE_BEFORE_CLASS_LBRACE, mySettings.CLASS_BRACE_STYLE, range,
 						false);
 			}
@@ -792,10 +783,9 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		else if(isOpenBlock(myType2))
 		{
 			PsiElement methodName = method.getNameIdentifier();
-			int dependencyStart = methodName == null ? myParent.getTextRange().getStartOffset() : methodName
-					.getTextRange().getStartOffset();
+			int dependencyStart = myTokens.getStartOffset(methodName == null ? myParent.getNode() : methodName.getNode());
 			createSpaceBeforeLBrace(mySettings.SPACE_BEFORE_METHOD_LBRACE, mySettings.METHOD_BRACE_STYLE,
-					new TextRange(dependencyStart, myChild1.getTextRange().getEndOffset()),
+					new TextRange(dependencyStart, myTokens.getEndOffset(myChild1)),
 					mySettings.KEEP_SIMPLE_METHODS_IN_ONE_LINE);
 		}
 		else if(myType2 == GroovyElementTypes.TYPE_PARAMETER_LIST)
@@ -832,8 +822,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 			}
 			else
 			{
-				TextRange range = new TextRange(myChild1.getStartOffset(), rparenth.getTextRange().getEndOffset
-						());
+				TextRange range = new TextRange(myTokens.getStartOffset(myChild1), myTokens.getEndOffset(rparenth));
 				createDependentLFSpacing(leftLF, spaceWithin, range);
 			}
 			return true;
@@ -847,8 +836,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 			}
 			else
 			{
-				TextRange range = new TextRange(lparenth.getStartOffset(), myChild2.getTextRange().getEndOffset
-						());
+				TextRange range = new TextRange(myTokens.getStartOffset(lparenth), myTokens.getEndOffset(myChild2));
 				createDependentLFSpacing(rightLF, spaceWithin, range);
 			}
 			return true;
@@ -927,7 +915,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		else if(myChild2.getPsi() instanceof GrBlockStatement)
 		{
 			createSpaceBeforeLBrace(mySettings.SPACE_BEFORE_WHILE_LBRACE, mySettings.BRACE_STYLE,
-					new TextRange(myParent.getTextRange().getStartOffset(), myChild1.getTextRange().getEndOffset()),
+					getRangeFromParentToChild1(),
 					mySettings.KEEP_SIMPLE_BLOCKS_IN_ONE_LINE);
 		}
 		else
@@ -1008,7 +996,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		if(TokenSets.BINARY_OP_SET.contains(myType2))
 		{
 			createDependentLFSpacing(mySettings.BINARY_OPERATION_SIGN_ON_NEXT_LINE, spaceAround,
-					expression.getTextRange());
+					getTextRange(expression));
 		}
 		else
 		{
@@ -1201,8 +1189,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		{
 			boolean space = myChild2.getPsi() == ((GrIfStatement) myParent).getElseBranch() ? mySettings
 					.SPACE_BEFORE_ELSE_LBRACE : mySettings.SPACE_BEFORE_IF_LBRACE;
-			createSpaceBeforeLBrace(space, mySettings.BRACE_STYLE, new TextRange(myParent.getTextRange()
-					.getStartOffset(), myChild1.getTextRange().getEndOffset()),
+			createSpaceBeforeLBrace(space, mySettings.BRACE_STYLE, getRangeFromParentToChild1(),
 					mySettings.KEEP_SIMPLE_BLOCKS_IN_ONE_LINE);
 		}
 		else if(myType2 == GroovyTokenTypes.mLPAREN)
@@ -1231,12 +1218,11 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 			if(myType2 == GroovyElementTypes.BLOCK_STATEMENT)
 			{
 				createSpaceBeforeLBrace(mySettings.SPACE_BEFORE_FOR_LBRACE, mySettings.BRACE_STYLE,
-						new TextRange(myParent.getTextRange().getStartOffset(), myChild1.getTextRange().getEndOffset()
-						), mySettings.KEEP_SIMPLE_BLOCKS_IN_ONE_LINE);
+						getRangeFromParentToChild1(), mySettings.KEEP_SIMPLE_BLOCKS_IN_ONE_LINE);
 			}
 			else if(mySettings.KEEP_CONTROL_STATEMENT_IN_ONE_LINE)
 			{
-				createDependentLFSpacing(true, true, myParent.getTextRange());
+				createDependentLFSpacing(true, true, getTextRange(myParent));
 			}
 			else
 			{
@@ -1281,7 +1267,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		{
 			if(mySettings.KEEP_SIMPLE_BLOCKS_IN_ONE_LINE)
 			{
-				myResult = Spacing.createDependentLFSpacing(0, 1, myParent.getTextRange(),
+				myResult = Spacing.createDependentLFSpacing(0, 1, getTextRange(myParent),
 						mySettings.KEEP_LINE_BREAKS, keepBlankLines());
 			}
 			else
@@ -1342,7 +1328,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		else if(keepOneLine)
 		{
 			int space = spaceBeforeLbrace ? 1 : 0;
-			myResult = Spacing.createDependentLFSpacing(space, space, myParent.getTextRange(),
+			myResult = Spacing.createDependentLFSpacing(space, space, getTextRange(myParent),
 					mySettings.KEEP_LINE_BREAKS, keepBlankLines());
 		}
 		else
@@ -1359,7 +1345,7 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 	private Spacing createNonLFSpace(int spaces, @Nullable TextRange dependantRange,
 			boolean keepLineBreaks)
 	{
-		ASTNode prev = FormatterUtil.getPreviousNonWhitespaceLeaf(myChild2);
+		ASTNode prev = myTokens.getPreviousNonWhitespaceLeaf(myChild2);
 		if(prev != null && prev.getElementType() == GroovyTokenTypes.mSL_COMMENT)
 		{
 			return Spacing.createSpacing(0, Integer.MAX_VALUE, 1, keepLineBreaks, keepBlankLines());
@@ -1390,9 +1376,16 @@ public class GroovySpacingProcessor extends GroovyElementVisitor
 		}
 	}
 
-	static boolean isWhiteSpace(ASTNode node)
+	@Nonnull
+	private TextRange getTextRange(@Nonnull PsiElement element)
+	{
+		return myTokens.getTextRange(element.getNode());
+	}
+
+	@Nonnull
+	private TextRange getRangeFromParentToChild1()
 	{
-		return node != null && (PsiImplUtil.isWhiteSpaceOrNls(node) || node.getTextLength() == 0);
+		return new TextRange(myTokens.getStartOffset(myParent.getNode()), myTokens.getEndOffset(myChild1));
 	}
 }
 
@@ -25,6 +25,7 @@ import consulo.language.psi.PsiElement;
 import consulo.util.lang.StringUtil;
 import org.jetbrains.plugins.groovy.impl.codeStyle.GroovyCodeStyleSettings;
 import org.jetbrains.plugins.groovy.impl.formatter.FormattingContext;
+import org.jetbrains.plugins.groovy.impl.formatter.FormattingTokenModel;
 import org.jetbrains.plugins.groovy.impl.formatter.blocks.ClosureBodyBlock;
 import org.jetbrains.plugins.groovy.impl.formatter.blocks.GrLabelBlock;
 import org.jetbrains.plugins.groovy.impl.formatter.blocks.GroovyBlock;
@@ -87,8 +88,8 @@ public abstract class GroovySpacingProcessorBasic
 
 		if(child1 instanceof ClosureBodyBlock)
 		{
-			return createDependentSpacingForClosure(settings, groovySettings, (GrClosableBlock) left.getParent(),
-					false);
+			return createDependentSpacingForClosure(settings, groovySettings, context.getTokenModel(),
+					(GrClosableBlock) left.getParent(), false);
 		}
 
 		if(leftType == GroovyDocElementTypes.GROOVY_DOC_COMMENT)
@@ -138,8 +139,8 @@ public abstract class GroovySpacingProcessorBasic
 		}
 
 		// For regexes
-		if(leftNode.getTreeParent().getElementType() == GroovyTokenTypes.mREGEX_LITERAL || leftNode.getTreeParent()
-				.getElementType() == GroovyTokenTypes.mDOLLAR_SLASH_REGEX_LITERAL)
+		IElementType leftParentType = context.getTokenModel().getParentType(leftNode);
+		if(leftParentType == GroovyTokenTypes.mREGEX_LITERAL || leftParentType == GroovyTokenTypes.mDOLLAR_SLASH_REGEX_LITERAL)
 		{
 			return NO_SPACING;
 		}
@@ -229,6 +230,7 @@ public abstract class GroovySpacingProcessorBasic
 	@Nonnull
 	static Spacing createDependentSpacingForClosure(@Nonnull CommonCodeStyleSettings settings,
 			@Nonnull GroovyCodeStyleSettings groovySettings,
+			@Nonnull FormattingTokenModel tokens,
 			@Nonnull GrClosableBlock closure,
 			boolean forArrow)
 	{
@@ -238,8 +240,8 @@ public abstract class GroovySpacingProcessorBasic
 		if(statements.length > 0)
 		{
 			PsiElement startElem = forArrow ? statements[0] : closure;
-			int start = startElem.getTextRange().getStartOffset();
-			int end = statements[statements.length - 1].getTextRange().getEndOffset();
+			int start = tokens.getStartOffset(startElem.getNode());
+			int end = tokens.getEndOffset(statements[statements.length - 1].getNode());
 			TextRange range = new TextRange(start, end);
 
 			int minSpaces = spaceWithinBraces || forArrow ? 1 : 0;
@@ -252,7 +254,8 @@ public abstract class GroovySpacingProcessorBasic
 
 	private static boolean mirrorsAst(GroovyBlock block)
 	{
-		return block.getNode().getTextRange().equals(block.getTextRange()) ||
+		return block.getClass() == GroovyBlock.class ||
+				block.getContext().getTokenModel().getTextRange(block.getNode()).equals(block.getTextRange()) ||
 				block instanceof MethodCallWithoutQualifierBlock ||
 				block instanceof ClosureBodyBlock ||
 				block instanceof GrLabelBlock;
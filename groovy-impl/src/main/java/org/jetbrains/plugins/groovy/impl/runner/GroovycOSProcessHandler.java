@@ -24,7 +24,6 @@ import consulo.process.cmd.GeneralCommandLine;
 import consulo.process.event.ProcessEvent;
 import consulo.process.event.ProcessListener;
 import consulo.process.local.ProcessHandlerFactory;
-import consulo.util.collection.ContainerUtil;
 import consulo.util.dataholder.Key;
 import consulo.util.io.FileUtil;
 import consulo.util.lang.StringUtil;
@@ -32,6 +31,8 @@ import jakarta.annotation.Nullable;
 import org.jetbrains.groovy.compiler.rt.CompilerMessage;
 import org.jetbrains.groovy.compiler.rt.GroovyCompilerMessageCategories;
 import org.jetbrains.groovy.compiler.rt.GroovyRtConstants;
+import org.jetbrains.groovy.compiler.rt.GroovycArgsFile;
+import org.jetbrains.groovy.compiler.rt.GroovycResultWriter;
 
 import java.io.*;
 import java.util.*;
@@ -47,12 +48,14 @@ public class GroovycOSProcessHandler implements ProcessListener {
   private final List<OutputItem> myCompiledItems = new ArrayList<OutputItem>();
   private final Set<File> toRecompileFiles = new HashSet<File>();
   private final List<CompilerMessage> compilerMessages = new ArrayList<CompilerMessage>();
+  private final List<TelemetryItem> myTelemetry = new ArrayList<TelemetryItem>();
   private final StringBuffer stdErr = new StringBuffer();
 
   private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.groovy.GroovycOSProcessHandler");
   private final Consumer<String> myStatusUpdater;
 
   private ProcessHandler myProcessHandler;
+  private Integer myExitCode;
 
   public GroovycOSProcessHandler(GeneralCommandLine commandLine, Consumer<String> statusUpdater) throws ExecutionException {
     myProcessHandler = ProcessHandlerFactory.getInstance().createProcessHandler(commandLine);
@@ -60,6 +63,13 @@ public class GroovycOSProcessHandler implements ProcessListener {
     myStatusUpdater = statusUpdater;
   }
 
+  /**
+   * Creates a handler for groovyc output which is not received from a process of its own, see {@link #notifyTextAvailable}
+   */
+  public GroovycOSProcessHandler(Consumer<String> statusUpdater) {
+    myStatusUpdater = statusUpdater;
+  }
+
   public void waitFor() {
     myProcessHandler.waitFor();
   }
@@ -70,8 +80,10 @@ public class GroovycOSProcessHandler implements ProcessListener {
 
   @Override
   public void onTextAvailable(ProcessEvent event, Key outputType) {
-    String text = event.getText();
+    notifyTextAvailable(event.getText(), outputType);
+  }
 
+  public void notifyTextAvailable(String text, Key outputType) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Received from groovyc: " + text);
     }
@@ -89,108 +101,74 @@ public class GroovycOSProcessHandler implements ProcessListener {
     parseOutput(text);
   }
 
-  private final StringBuffer outputBuffer = new StringBuffer();
-
   protected void updateStatus(@Nullable String status) {
     myStatusUpdater.accept(status == null ? GROOVY_COMPILER_IN_OPERATION : status);
   }
 
+  /**
+   * Only status updates are taken from stdout, the rest of it is what the compiled code or AST transformations print.
+   * Results are read from a separate file, see {@link #readResults(File)}.
+   */
   private void parseOutput(String text) {
     String trimmed = text.trim();
 
     if (trimmed.startsWith(GroovyRtConstants.PRESENTABLE_MESSAGE)) {
       updateStatus(trimmed.substring(GroovyRtConstants.PRESENTABLE_MESSAGE.length()));
-      return;
     }
-
-    if (GroovyRtConstants.CLEAR_PRESENTABLE.equals(trimmed)) {
+    else if (GroovyRtConstants.CLEAR_PRESENTABLE.equals(trimmed)) {
       updateStatus(null);
-      return;
     }
+  }
 
-
-    if (StringUtil.isNotEmpty(text)) {
-      outputBuffer.append(text);
-
-      //compiled start marker have to be in the beginning on each string
-      if (outputBuffer.indexOf(GroovyRtConstants.COMPILED_START) != -1) {
-        if (outputBuffer.indexOf(GroovyRtConstants.COMPILED_END) == -1) {
-          return;
-        }
-
-        String compiled = handleOutputBuffer(GroovyRtConstants.COMPILED_START, GroovyRtConstants.COMPILED_END);
-        List<String> list = splitAndTrim(compiled);
-        String outputPath = list.get(0);
-        String sourceFile = list.get(1);
-
-        OutputItem item = new OutputItem(outputPath, sourceFile);
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Output: " + item);
+  /**
+   * Decodes the results file written by groovyc (see {@link GroovycResultWriter}) record by record. A file truncated by
+   * a crashed compiler yields the records written before the crash.
+   */
+  public void readResults(File resultsFile) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(resultsFile)))) {
+      int kind;
+      while ((kind = in.read()) != -1) {
+        if (kind == GroovycResultWriter.COMPILED) {
+          OutputItem item = new OutputItem(GroovycResultWriter.readString(in), GroovycResultWriter.readString(in));
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Output: " + item);
+          }
+          myCompiledItems.add(item);
         }
-        myCompiledItems.add(item);
-
-      }
-      else if (outputBuffer.indexOf(GroovyRtConstants.TO_RECOMPILE_START) != -1) {
-        if (outputBuffer.indexOf(GroovyRtConstants.TO_RECOMPILE_END) != -1) {
-          String url = handleOutputBuffer(GroovyRtConstants.TO_RECOMPILE_START, GroovyRtConstants.TO_RECOMPILE_END);
-          toRecompileFiles.add(new File(url));
+        else if (kind == GroovycResultWriter.TO_RECOMPILE) {
+          toRecompileFiles.add(new File(GroovycResultWriter.readString(in)));
         }
-      }
-      else if (outputBuffer.indexOf(GroovyRtConstants.MESSAGES_START) != -1) {
-        if (outputBuffer.indexOf(GroovyRtConstants.MESSAGES_END) == -1) {
-          return;
+        else if (kind == GroovycResultWriter.MESSAGE) {
+          String category = GroovycResultWriter.readString(in);
+          String message = GroovycResultWriter.readString(in);
+          String url = GroovycResultWriter.readString(in);
+          int line = in.readInt();
+          int column = in.readInt();
+          CompilerMessage compilerMessage = new CompilerMessage(category, message, url, line, column);
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Message: " + compilerMessage);
+          }
+          compilerMessages.add(compilerMessage);
         }
-
-        text = handleOutputBuffer(GroovyRtConstants.MESSAGES_START, GroovyRtConstants.MESSAGES_END);
-
-        List<String> tokens = splitAndTrim(text);
-        LOG.assertTrue(tokens.size() > 4, "Wrong number of output params");
-
-        String category = tokens.get(0);
-        String message = tokens.get(1);
-        String url = tokens.get(2);
-        String lineNum = tokens.get(3);
-        String columnNum = tokens.get(4);
-
-        int lineInt;
-        int columnInt;
-
-        try {
-          lineInt = Integer.parseInt(lineNum);
-          columnInt = Integer.parseInt(columnNum);
-        }
-        catch (NumberFormatException e) {
-          LOG.error(e);
-          lineInt = 0;
-          columnInt = 0;
+        else if (kind == GroovycResultWriter.TELEMETRY) {
+          myTelemetry.add(new TelemetryItem(GroovycResultWriter.readString(in),
+                                            GroovycResultWriter.readString(in),
+                                            in.readLong(),
+                                            in.readLong(),
+                                            in.readLong()));
         }
-
-        CompilerMessage compilerMessage = new CompilerMessage(category, message, url, lineInt, columnInt);
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Message: " + compilerMessage);
+        else {
+          LOG.error("Malformed groovyc results: unknown record " + kind);
+          return;
         }
-
-        compilerMessages.add(compilerMessage);
       }
     }
-  }
-
-  private String handleOutputBuffer(String startMarker, String endMarker) {
-    int start = outputBuffer.indexOf(startMarker);
-    int end = outputBuffer.indexOf(endMarker);
-    if (start > end) {
-      throw new AssertionError("Malformed Groovyc output: " + outputBuffer.toString());
+    catch (EOFException e) {
+      LOG.info("Groovyc results are truncated: " + resultsFile);
+    }
+    catch (IOException e) {
+      LOG.info(e);
     }
-
-    String text = outputBuffer.substring(start + startMarker.length(), end);
-
-    outputBuffer.delete(start, end + endMarker.length());
-
-    return text.trim();
-  }
-
-  private static List<String> splitAndTrim(String compiled) {
-    return ContainerUtil.map(StringUtil.split(compiled, GroovyRtConstants.SEPARATOR), s -> s.trim());
   }
 
   public List<OutputItem> getSuccessfullyCompiled() {
@@ -201,8 +179,21 @@ public class GroovycOSProcessHandler implements ProcessListener {
     return toRecompileFiles;
   }
 
+  public List<TelemetryItem> getTelemetry() {
+    return myTelemetry;
+  }
+
+  public void notifyTerminated(int exitCode) {
+    myExitCode = exitCode;
+  }
+
+  @Nullable
+  private Integer getExitCode() {
+    return myProcessHandler != null ? myProcessHandler.getExitCode() : myExitCode;
+  }
+
   public boolean shouldRetry() {
-    Integer exitCode = myProcessHandler.getExitCode();
+    Integer exitCode = getExitCode();
     if (exitCode != null && exitCode != 0) {
       return true;
     }
@@ -229,8 +220,8 @@ public class GroovycOSProcessHandler implements ProcessListener {
       messages.add(new CompilerMessage(GroovyCompilerMessageCategories.INFORMATION, msg, null, -1, -1));
     }
 
-    int exitValue = myProcessHandler.getExitCode();
-    if (exitValue != 0) {
+    Integer exitValue = getExitCode();
+    if (exitValue != null && exitValue != 0) {
       for (CompilerMessage message : messages) {
         if (message.getCategory().equals(GroovyCompilerMessageCategories.ERROR)) {
           return messages;
@@ -251,43 +242,10 @@ public class GroovycOSProcessHandler implements ProcessListener {
                                                    String finalOutput,
                                                    Map<String, String> class2Src,
                                                    @Nullable String encoding,
-                                                   List<String> patchers) throws IOException {
-    File tempFile = FileUtil.createTempFile("ideaGroovyToCompile", ".txt", true);
-
-    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile)));
-    try {
-      for (String file : changedSources) {
-        writer.write(GroovyRtConstants.SRC_FILE + "\n");
-        writer.write(file);
-        writer.write("\n");
-      }
-
-      writer.write("class2src\n");
-      for (Map.Entry<String, String> entry : class2Src.entrySet()) {
-        writer.write(entry.getKey() + "\n");
-        writer.write(entry.getValue() + "\n");
-      }
-      writer.write(GroovyRtConstants.END + "\n");
-
-      writer.write(GroovyRtConstants.PATCHERS + "\n");
-      for (String patcher : patchers) {
-        writer.write(patcher + "\n");
-      }
-      writer.write(GroovyRtConstants.END + "\n");
-      if (encoding != null) {
-        writer.write(GroovyRtConstants.ENCODING + "\n");
-        writer.write(encoding + "\n");
-      }
-      writer.write(GroovyRtConstants.OUTPUTPATH + "\n");
-      writer.write(outputDir);
-      writer.write("\n");
-      writer.write(GroovyRtConstants.FINAL_OUTPUTPATH + "\n");
-      writer.write(finalOutput);
-      writer.write("\n");
-    }
-    finally {
-      writer.close();
-    }
+                                                   List<String> patchers,
+                                                   File resultsFile) throws IOException {
+    File tempFile = FileUtil.createTempFile("ideaGroovyToCompile", ".bin", true);
+    GroovycArgsFile.write(tempFile, changedSources, class2Src, patchers, encoding, outputDir, finalOutput, resultsFile.getPath());
     return tempFile;
   }
 
@@ -317,4 +275,23 @@ public class GroovycOSProcessHandler implements ProcessListener {
     }
   }
 
+  /**
+   * A measurement of the groovyc run: a phase, a phase operation or a source file, see
+   * {@link GroovycResultWriter#TELEMETRY}. Values not measured are -1.
+   */
+  public static class TelemetryItem {
+    public final String kind;
+    public final String name;
+    public final long nanos;
+    public final long allocatedBytes;
+    public final long liveHeapBytes;
+
+    public TelemetryItem(String kind, String name, long nanos, long allocatedBytes, long liveHeapBytes) {
+      this.kind = kind;
+      this.name = name;
+      this.nanos = nanos;
+      this.allocatedBytes = allocatedBytes;
+      this.liveHeapBytes = liveHeapBytes;
+    }
+  }
 }
@@ -47,10 +47,14 @@ public class GroovyDslExecutor {
   private boolean locked = false
 
   public GroovyDslExecutor(String text, String fileName) {
-    myFileName = fileName
+    this(new GroovyShell().parse(text, StringUtil.sanitizeJavaIdentifier(fileName)), fileName)
+  }
 
-    def shell = new GroovyShell()
-    def script = shell.parse(text, StringUtil.sanitizeJavaIdentifier(fileName))
+  /**
+   * @param script a compiled gdsl script, not run yet
+   */
+  public GroovyDslExecutor(Script script, String fileName) {
+    myFileName = fileName
 
     def mc = new ExpandoMetaClass(script.class, false)
 
@@ -167,8 +171,18 @@ public class GroovyDslExecutor {
   }
 
   CompoundMembersHolder processVariants(GroovyClassDescriptor descriptor, ProcessingContext ctx, PsiType psiType) {
+    BitSet all = new BitSet()
+    all.set(0, enhancers.size())
+    return processVariants(descriptor, ctx, psiType, all)
+  }
+
+  /**
+   * @param candidates indices of enhancers to check, the others are known not to be applicable
+   */
+  CompoundMembersHolder processVariants(GroovyClassDescriptor descriptor, ProcessingContext ctx, PsiType psiType, BitSet candidates) {
     CompoundMembersHolder holder = new CompoundMembersHolder()
-    for (pair in enhancers) {
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      def pair = enhancers[i]
       ctx.put(DslPointcut.BOUND, null)
       if (pair.first.isApplicable(descriptor, ctx)) {
         def generator = new CustomMembersGenerator(descriptor, psiType, ctx.get(DslPointcut.BOUND))
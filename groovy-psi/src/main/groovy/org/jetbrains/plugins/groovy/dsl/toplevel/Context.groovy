@@ -23,7 +23,7 @@ class Context {
     if (extensions instanceof List) {
       extensions = extensions.collect { StringUtil.trimStart(it, '.') }
       def vfilePattern = extensions.size() == 1 ? virtualFile().withExtension(extensions[0]) : virtualFile().withExtension(extensions as String[])
-      addFilter new FileContextFilter(psiFile().withVirtualFile(vfilePattern))
+      addFilter new FileContextFilter(psiFile().withVirtualFile(vfilePattern), extensions as Set<String>)
     }
 
     String scriptType = args.scriptType
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.dsl;
+
+import com.intellij.java.language.psi.PsiClass;
+import com.intellij.java.language.psi.PsiClassType;
+import com.intellij.java.language.psi.PsiType;
+import consulo.language.psi.PsiFile;
+import consulo.language.util.ProcessingContext;
+import consulo.util.lang.Pair;
+import consulo.virtualFileSystem.VirtualFile;
+import groovy.lang.Closure;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.jetbrains.plugins.groovy.dsl.toplevel.*;
+import org.jetbrains.plugins.groovy.lang.psi.GroovyFile;
+import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.ClassUtil;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pre-filters the enhancers of a gdsl script: conditions every applicable place must satisfy (qualifier supertype,
+ * script type, file extension) are extracted from the enhancers' context filters once, so that filters which cannot
+ * apply to a qualifier are not evaluated at all.
+ */
+public class GdslEnhancerIndex {
+  private final Requirement[] myRequirements;
+  private final BitSet myUnconstrained = new BitSet();
+
+  GdslEnhancerIndex(@Nonnull List<Pair<ContextFilter, Closure>> enhancers) {
+    myRequirements = new Requirement[enhancers.size()];
+    for (int i = 0; i < myRequirements.length; i++) {
+      myRequirements[i] = Requirement.of(enhancers.get(i).first);
+      if (myRequirements[i] == null) {
+        myUnconstrained.set(i);
+      }
+    }
+  }
+
+  /**
+   * @return indices of the enhancers whose filters may accept {@code descriptor}
+   */
+  @Nonnull
+  BitSet getCandidates(@Nonnull GroovyClassDescriptor descriptor, @Nonnull ProcessingContext ctx) {
+    if (myUnconstrained.cardinality() == myRequirements.length) {
+      return myUnconstrained;
+    }
+
+    Place place = new Place(descriptor, ctx);
+    BitSet result = (BitSet)myUnconstrained.clone();
+    for (int i = 0; i < myRequirements.length; i++) {
+      Requirement requirement = myRequirements[i];
+      if (requirement != null && requirement.mayAccept(place)) {
+        result.set(i);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Facts about the place which requirements are checked against, computed lazily
+   */
+  private static class Place {
+    private final GroovyClassDescriptor myDescriptor;
+    private final ProcessingContext myContext;
+    private Map<String, PsiClass> mySuperClasses;
+    private boolean mySuperClassesComputed;
+    private String myScriptTypeId;
+
+    Place(GroovyClassDescriptor descriptor, ProcessingContext context) {
+      myDescriptor = descriptor;
+      myContext = context;
+    }
+
+    /**
+     * @return super classes of the qualifier class, {@code null} if the qualifier is not a resolved class type
+     */
+    @Nullable
+    Map<String, PsiClass> getSuperClasses() {
+      if (!mySuperClassesComputed) {
+        mySuperClassesComputed = true;
+        PsiType type = ClassUtil.findPsiType(myDescriptor, myContext);
+        PsiClass psiClass = type instanceof PsiClassType ? ((PsiClassType)type).resolve() : null;
+        mySuperClasses = psiClass == null ? null : ClassUtil.getSuperClassesWithCache(psiClass);
+      }
+      return mySuperClasses;
+    }
+
+    /**
+     * @return script type id of the place file, {@code null} if it is not a Groovy script
+     */
+    @Nullable
+    String getScriptTypeId() {
+      if (myScriptTypeId == null) {
+        PsiFile file = myDescriptor.getPlaceFile();
+        myScriptTypeId = file instanceof GroovyFile && ((GroovyFile)file).isScript()
+                         ? ScriptTypeFilter.getScriptTypeId((GroovyFile)file)
+                         : "";
+      }
+      return myScriptTypeId.isEmpty() ? null : myScriptTypeId;
+    }
+
+    @Nullable
+    String getExtension() {
+      VirtualFile file = myDescriptor.getPlaceFile().getVirtualFile();
+      return file == null ? null : file.getExtension();
+    }
+  }
+
+  /**
+   * Necessary condition of a context filter
+   */
+  private static class Requirement {
+    @Nullable
+    private final String mySuperClass;
+    @Nullable
+    private final ScriptTypeFilter myScriptType;
+    @Nullable
+    private final Set<String> myExtensions;
+
+    private Requirement(@Nullable String superClass, @Nullable ScriptTypeFilter scriptType, @Nullable Set<String> extensions) {
+      mySuperClass = superClass;
+      myScriptType = scriptType;
+      myExtensions = extensions;
+    }
+
+    @Nullable
+    static Requirement of(@Nonnull ContextFilter filter) {
+      if (filter instanceof ClassContextFilter) {
+        String superClass = ((ClassContextFilter)filter).getSuperClassName();
+        return superClass == null ? null : new Requirement(superClass, null, null);
+      }
+      if (filter instanceof ScriptTypeFilter) {
+        return new Requirement(null, (ScriptTypeFilter)filter, null);
+      }
+      if (filter instanceof FileContextFilter) {
+        Set<String> extensions = ((FileContextFilter)filter).getExtensions();
+        return extensions == null ? null : new Requirement(null, null, extensions);
+      }
+      if (filter instanceof CompositeContextFilter && ((CompositeContextFilter)filter).isConjunction()) {
+        Requirement result = null;
+        for (ContextFilter conjunct : ((CompositeContextFilter)filter).getFilters()) {
+          Requirement requirement = of(conjunct);
+          if (requirement != null) {
+            result = result == null ? requirement : result.and(requirement);
+          }
+        }
+        return result;
+      }
+      return null;
+    }
+
+    @Nonnull
+    private Requirement and(@Nonnull Requirement other) {
+      return new Requirement(mySuperClass != null ? mySuperClass : other.mySuperClass,
+                             myScriptType != null ? myScriptType : other.myScriptType,
+                             myExtensions != null ? myExtensions : other.myExtensions);
+    }
+
+    boolean mayAccept(@Nonnull Place place) {
+      if (myExtensions != null && !myExtensions.contains(place.getExtension())) {
+        return false;
+      }
+      if (myScriptType != null) {
+        String scriptTypeId = place.getScriptTypeId();
+        if (scriptTypeId == null || !myScriptType.accepts(scriptTypeId)) {
+          return false;
+        }
+      }
+      if (mySuperClass != null) {
+        // mirrors the first check of ClassContextFilter.isSubtype: unresolved qualifiers may still be assignable
+        Map<String, PsiClass> superClasses = place.getSuperClasses();
+        if (superClasses != null && !superClasses.containsKey(mySuperClass)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.dsl;
+
+import consulo.container.boot.ContainerPathManager;
+import consulo.container.plugin.PluginDescriptor;
+import consulo.container.plugin.PluginManager;
+import consulo.logging.Logger;
+import consulo.util.io.FileUtil;
+import consulo.util.lang.StringUtil;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import groovy.lang.Script;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles gdsl scripts and persists their class files in the system directory, keyed by the hash of the script text
+ * and of the plugin and Groovy versions, so that unchanged scripts are loaded from bytes on the next start instead of
+ * being compiled again.
+ * <p>
+ * Loading an entry marks it as used. Once there are more than {@link #MAX_ENTRIES} entries, the least recently used
+ * ones are deleted, which drops the entries of edited scripts and of older versions.
+ */
+class GdslScriptClassCache {
+  private static final Logger LOG = Logger.getInstance(GdslScriptClassCache.class);
+  private static final int VERSION = 1;
+  private static final int MAX_ENTRIES = 256;
+
+  private GdslScriptClassCache() {
+  }
+
+  /**
+   * @return an instance of the script class compiled from {@code text}, not run yet
+   */
+  @Nonnull
+  static Script createScript(@Nonnull String text, @Nonnull String fileName) {
+    String className = StringUtil.sanitizeJavaIdentifier(fileName);
+    File cacheFile = getCacheFile(text, className);
+
+    Map<String, byte[]> classes = cacheFile == null ? null : load(cacheFile);
+    if (classes == null) {
+      classes = compile(text, className);
+      if (cacheFile != null) {
+        save(cacheFile, classes);
+        prune(cacheFile.getParentFile());
+      }
+    }
+
+    try {
+      Class<?> scriptClass = new BytesClassLoader(classes).loadClass(className);
+      return InvokerHelper.createScript(scriptClass, new Binding());
+    }
+    catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Script class " + className + " was not compiled", e);
+    }
+  }
+
+  @Nonnull
+  private static Map<String, byte[]> compile(@Nonnull String text, @Nonnull String className) {
+    CompilerConfiguration configuration = new CompilerConfiguration();
+    GroovyClassLoader loader = new GroovyClassLoader(GdslScriptClassCache.class.getClassLoader(), configuration);
+    CompilationUnit unit = new CompilationUnit(configuration, null, loader);
+    unit.addSource(className + ".groovy", text);
+    unit.compile(Phases.CLASS_GENERATION);
+
+    Map<String, byte[]> result = new LinkedHashMap<String, byte[]>();
+    for (GroovyClass groovyClass : unit.getClasses()) {
+      result.put(groovyClass.getName(), groovyClass.getBytes());
+    }
+    return result;
+  }
+
+  @Nullable
+  private static File getCacheFile(@Nonnull String text, @Nonnull String className) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((VERSION + ":" + getPluginVersion() + ":" + GroovySystem.getVersion() + ":" + className + ":")
+                      .getBytes(StandardCharsets.UTF_8));
+      digest.update(text.getBytes(StandardCharsets.UTF_8));
+      return new File(new File(ContainerPathManager.get().getSystemPath(), "groovyDslClasses"), StringUtil.toHexString(digest.digest()));
+    }
+    catch (NoSuchAlgorithmException e) {
+      LOG.warn(e);
+      return null;
+    }
+  }
+
+  @Nonnull
+  private static String getPluginVersion() {
+    PluginDescriptor plugin = PluginManager.getPlugin(GdslScriptClassCache.class);
+    String version = plugin == null ? null : plugin.getVersion();
+    return version == null ? "" : version;
+  }
+
+  @Nullable
+  private static Map<String, byte[]> load(@Nonnull File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    //noinspection ResultOfMethodCallIgnored
+    file.setLastModified(System.currentTimeMillis());
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      int count = in.readInt();
+      Map<String, byte[]> result = new LinkedHashMap<String, byte[]>();
+      for (int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        result.put(name, bytes);
+      }
+      return result;
+    }
+    catch (IOException e) {
+      LOG.info("Cannot load compiled gdsl script from " + file, e);
+      FileUtil.delete(file);
+      return null;
+    }
+  }
+
+  private static void save(@Nonnull File file, @Nonnull Map<String, byte[]> classes) {
+    File temp = null;
+    try {
+      File dir = file.getParentFile();
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        throw new IOException("Cannot create " + dir);
+      }
+      temp = File.createTempFile(file.getName(), ".tmp", dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        out.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeInt(entry.getValue().length);
+          out.write(entry.getValue());
+        }
+      }
+      // several threads may compile the same text, any of the results will do
+      if (!temp.renameTo(file)) {
+        FileUtil.delete(temp);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot save compiled gdsl script to " + file, e);
+      if (temp != null) {
+        FileUtil.delete(temp);
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries above {@link #MAX_ENTRIES}, and temporary files of saves which didn't finish
+   */
+  private static void prune(@Nonnull File dir) {
+    File[] files = dir.listFiles();
+    if (files == null || files.length <= MAX_ENTRIES) {
+      return;
+    }
+    // other threads may touch entries meanwhile, so sort by a snapshot of the times
+    long now = System.currentTimeMillis();
+    Map<File, Long> lastUsed = new LinkedHashMap<File, Long>();
+    for (File file : files) {
+      long modified = file.lastModified();
+      if (!file.getName().endsWith(".tmp")) {
+        lastUsed.put(file, modified);
+      }
+      else if (now - modified > TimeUnit.HOURS.toMillis(1)) {
+        FileUtil.delete(file);
+      }
+    }
+    if (lastUsed.size() <= MAX_ENTRIES) {
+      return;
+    }
+    List<Map.Entry<File, Long>> entries = new ArrayList<Map.Entry<File, Long>>(lastUsed.entrySet());
+    entries.sort(Map.Entry.<File, Long>comparingByValue().reversed());
+    for (Map.Entry<File, Long> entry : entries.subList(MAX_ENTRIES, entries.size())) {
+      FileUtil.delete(entry.getKey());
+    }
+  }
+
+  private static class BytesClassLoader extends ClassLoader {
+    private final Map<String, byte[]> myClasses;
+
+    BytesClassLoader(@Nonnull Map<String, byte[]> classes) {
+      super(GdslScriptClassCache.class.getClassLoader());
+      myClasses = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      byte[] bytes = myClasses.get(name);
+      if (bytes == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
@@ -94,8 +94,9 @@ public class GroovyDslFileIndex extends ScalarIndexExtension<String> {
 
   private static final MultiMap<String, LinkedBlockingQueue<Pair<VirtualFile, GroovyDslExecutor>>> filesInProcessing = MultiMap.createConcurrent();
 
-  private static final ThreadPoolExecutor ourPool = new ThreadPoolExecutor(4,
-                                                                           4,
+  private static final int POOL_SIZE = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+  private static final ThreadPoolExecutor ourPool = new ThreadPoolExecutor(POOL_SIZE,
+                                                                           POOL_SIZE,
                                                                            1,
                                                                            TimeUnit.SECONDS,
                                                                            new LinkedBlockingQueue<Runnable>(),
@@ -411,6 +412,25 @@ public class GroovyDslFileIndex extends ScalarIndexExtension<String> {
     return scriptFolders;
   }
 
+  /**
+   * Starts compiling all bundled and project gdsl scripts in background, so that the first resolve doesn't wait for them.
+   * Must be called inside a read action in smart mode.
+   */
+  public static void prepareScripts(@Nonnull Project project) {
+    if (GdslUtil.ourGdslStopped) {
+      return;
+    }
+    DslActivationStatus.getInstance();
+
+    LinkedBlockingQueue<Pair<VirtualFile, GroovyDslExecutor>> ignored = new LinkedBlockingQueue<Pair<VirtualFile, GroovyDslExecutor>>();
+    for (VirtualFile vfile : getGdslFiles(project)) {
+      long stamp = vfile.getModificationStamp();
+      if (getCachedExecutor(vfile, stamp) == null && isActivated(vfile)) {
+        scheduleParsing(ignored, project, vfile, stamp, vfile.loadText().toString());
+      }
+    }
+  }
+
   private static List<GroovyDslScript> getDslScripts(final Project project) {
     return CachedValuesManager.getManager(project).getCachedValue(project, SCRIPTS_CACHE, new CachedValueProvider<List<GroovyDslScript>>() {
       @Override
@@ -553,7 +573,7 @@ public class GroovyDslFileIndex extends ScalarIndexExtension<String> {
     }
 
     try {
-      return new GroovyDslExecutor(text, vfile.getName());
+      return new GroovyDslExecutor(GdslScriptClassCache.createScript(text, vfile.getName()), vfile.getName());
     }
     catch (Throwable e) {
       if (project.isDisposed()) {
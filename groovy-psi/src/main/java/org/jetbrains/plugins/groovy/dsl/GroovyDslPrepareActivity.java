@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.dsl;
+
+import consulo.annotation.component.ExtensionImpl;
+import consulo.application.ApplicationManager;
+import consulo.project.DumbService;
+import consulo.project.Project;
+import consulo.project.startup.PostStartupActivity;
+import consulo.ui.UIAccess;
+import jakarta.annotation.Nonnull;
+
+/**
+ * Compiles gdsl scripts in background once the project is opened and indexed.
+ */
+@ExtensionImpl
+public class GroovyDslPrepareActivity implements PostStartupActivity {
+  @Override
+  public void runActivity(@Nonnull Project project, @Nonnull UIAccess uiAccess) {
+    ApplicationManager.getApplication().executeOnPooledThread(() -> DumbService.getInstance(project).runReadActionInSmartMode(() -> {
+      if (!project.isDisposed()) {
+        GroovyDslFileIndex.prepareScripts(project);
+      }
+    }));
+  }
+}
@@ -36,6 +36,8 @@ import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.ClassUt
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -49,6 +51,7 @@ public class GroovyDslScript {
   private final GroovyDslExecutor executor;
   private final String myPath;
   private final FactorTree myFactorTree;
+  private final GdslEnhancerIndex myEnhancerIndex;
 
   public GroovyDslScript(Project project,
                          @Nullable VirtualFile file,
@@ -59,6 +62,8 @@ public class GroovyDslScript {
     this.executor = executor;
     myPath = path;
     myFactorTree = new FactorTree(project, executor);
+    List<Pair<ContextFilter, Closure>> enhancers = executor.getEnhancers();
+    myEnhancerIndex = new GdslEnhancerIndex(enhancers == null ? Collections.<Pair<ContextFilter, Closure>>emptyList() : enhancers);
   }
 
 
@@ -92,11 +97,12 @@ public class GroovyDslScript {
     ctx.put(ClassUtil.getClassKey(qname), psiType);
     ctx.put(GdslUtil.INITIAL_CONTEXT, descriptor);
     try {
-      if (!isApplicable(executor, descriptor, ctx)) {
+      BitSet candidates = myEnhancerIndex.getCandidates(descriptor, ctx);
+      if (!isApplicable(executor, candidates, descriptor, ctx)) {
         return CustomMembersHolder.EMPTY;
       }
 
-      return executor.processVariants(descriptor, ctx, psiType);
+      return executor.processVariants(descriptor, ctx, psiType, candidates);
     }
     catch (InvokerInvocationException e) {
       Throwable cause = e.getCause();
@@ -121,6 +127,7 @@ public class GroovyDslScript {
   }
 
   private static boolean isApplicable(@Nonnull GroovyDslExecutor executor,
+                                      @Nonnull BitSet candidates,
                                       GroovyClassDescriptor descriptor,
                                       ProcessingContext ctx) {
     List<Pair<ContextFilter, Closure>> enhancers = executor.getEnhancers();
@@ -128,8 +135,8 @@ public class GroovyDslScript {
       LOG.error("null enhancers");
       return false;
     }
-    for (Pair<ContextFilter, Closure> pair : enhancers) {
-      if (pair.first.isApplicable(descriptor, ctx)) {
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      if (enhancers.get(i).first.isApplicable(descriptor, ctx)) {
         return true;
       }
     }
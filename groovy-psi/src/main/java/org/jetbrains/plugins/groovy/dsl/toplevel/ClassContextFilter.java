@@ -26,6 +26,7 @@ import consulo.util.collection.ContainerUtil;
 import consulo.util.dataholder.Key;
 import consulo.util.lang.Pair;
 import consulo.util.lang.function.Condition;
+import jakarta.annotation.Nullable;
 import org.jetbrains.plugins.groovy.dsl.GroovyClassDescriptor;
 import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.ClassUtil;
 import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.TypesUtil;
@@ -38,10 +39,27 @@ import java.util.Map;
 public class ClassContextFilter implements ContextFilter
 {
 	private final Condition<Pair<PsiType, PsiFile>> myPattern;
+	@Nullable
+	private final String mySuperClassName;
 
 	public ClassContextFilter(Condition<Pair<PsiType, PsiFile>> pattern)
+	{
+		this(pattern, null);
+	}
+
+	private ClassContextFilter(Condition<Pair<PsiType, PsiFile>> pattern, @Nullable String superClassName)
 	{
 		myPattern = pattern;
+		mySuperClassName = superClassName;
+	}
+
+	/**
+	 * @return raw qualified name of a class every applicable qualifier class must inherit, if known
+	 */
+	@Nullable
+	public String getSuperClassName()
+	{
+		return mySuperClassName;
 	}
 
 	@Override
@@ -73,7 +91,13 @@ public class ClassContextFilter implements ContextFilter
 			{
 				return isSubtype(p.first, p.second, typeText);
 			}
-		});
+		}, getRawName(typeText));
+	}
+
+	private static String getRawName(String typeText)
+	{
+		int i = typeText.indexOf("<");
+		return i > 0 ? typeText.substring(0, i) : typeText;
 	}
 
 	public static boolean isSubtype(PsiType checked, PsiFile placeFile, String typeText)
@@ -84,9 +108,7 @@ public class ClassContextFilter implements ContextFilter
 			PsiClass psiClass = ((PsiClassType) checked).resolve();
 			if(psiClass != null)
 			{
-				int i = typeText.indexOf("<");
-				String rawName = i > 0 ? typeText.substring(0, i) : typeText;
-				if(!ClassUtil.getSuperClassesWithCache(psiClass).containsKey(rawName))
+				if(!ClassUtil.getSuperClassesWithCache(psiClass).containsKey(getRawName(typeText)))
 				{
 					return false;
 				}
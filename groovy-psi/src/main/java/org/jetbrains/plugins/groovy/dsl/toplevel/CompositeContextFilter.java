@@ -18,6 +18,15 @@ public class CompositeContextFilter implements ContextFilter {
     myAnd = and;
   }
 
+  @Nonnull
+  public List<ContextFilter> getFilters() {
+    return myFilters;
+  }
+
+  public boolean isConjunction() {
+    return myAnd;
+  }
+
   public boolean isApplicable(GroovyClassDescriptor descriptor, ProcessingContext ctx) {
     for (ContextFilter filter : myFilters) {
       if (myAnd != filter.isApplicable(descriptor, ctx)) {
@@ -4,15 +4,33 @@ import consulo.language.pattern.ElementPattern;
 import consulo.language.util.ProcessingContext;
 import org.jetbrains.plugins.groovy.dsl.GroovyClassDescriptor;
 import consulo.language.psi.PsiFile;
+import jakarta.annotation.Nullable;
+
+import java.util.Set;
 
 /**
  * @author peter
  */
 public class FileContextFilter implements ContextFilter {
   private final ElementPattern<? extends PsiFile> myPattern;
+  @Nullable
+  private final Set<String> myExtensions;
 
   public FileContextFilter(ElementPattern<? extends PsiFile> pattern) {
+    this(pattern, null);
+  }
+
+  /**
+   * @param extensions extensions of all virtual files accepted by {@code pattern}
+   */
+  public FileContextFilter(ElementPattern<? extends PsiFile> pattern, @Nullable Set<String> extensions) {
     myPattern = pattern;
+    myExtensions = extensions;
+  }
+
+  @Nullable
+  public Set<String> getExtensions() {
+    return myExtensions;
   }
 
   public boolean isApplicable(GroovyClassDescriptor descriptor, ProcessingContext ctx) {
@@ -40,13 +40,17 @@ public class ScriptTypeFilter implements ContextFilter
 		PsiFile file = descriptor.getPlaceFile();
 		if(file instanceof GroovyFile && ((GroovyFile) file).isScript())
 		{
-			return myScriptType.contains(getScriptTypeId((GroovyFile) file));
+			return accepts(getScriptTypeId((GroovyFile) file));
 		}
 		return false;
 	}
 
+	public boolean accepts(@Nonnull String scriptTypeId)
+	{
+		return myScriptType.contains(scriptTypeId);
+	}
 
-	private static String getScriptTypeId(@Nonnull GroovyFile script)
+	public static String getScriptTypeId(@Nonnull GroovyFile script)
 	{
 		for(GroovyScriptTypeDetector detector : GroovyScriptTypeDetector.EP_NAME.getExtensions())
 		{
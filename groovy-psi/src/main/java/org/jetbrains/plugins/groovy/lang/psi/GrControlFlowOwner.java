@@ -26,4 +26,10 @@ public interface GrControlFlowOwner extends GrStatementOwner {
   Instruction[] getControlFlow();
 
   boolean isTopControlFlowOwner();
+
+  /**
+   * @return counter which changes whenever anything inside this owner changes
+   * @see org.jetbrains.plugins.groovy.lang.psi.impl.GroovyCodeBlockModificationTracker
+   */
+  long getSubtreeModificationCount();
 }
@@ -21,9 +21,6 @@ import consulo.language.psi.PsiElement;
 import consulo.language.psi.PsiFile;
 import consulo.logging.Logger;
 import consulo.util.collection.ArrayUtil;
-import consulo.util.collection.primitive.ints.IntLists;
-import consulo.util.collection.primitive.ints.IntSet;
-import consulo.util.collection.primitive.ints.IntSets;
 import consulo.util.collection.primitive.objects.ObjectIntMap;
 import consulo.util.collection.primitive.objects.ObjectMaps;
 import org.jetbrains.plugins.groovy.lang.lexer.GroovyTokenTypes;
@@ -45,6 +42,7 @@ import org.jetbrains.plugins.groovy.lang.resolve.processors.ResolverProcessorImp
 
 import jakarta.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -56,41 +54,92 @@ public class ControlFlowBuilderUtil {
   private ControlFlowBuilderUtil() {
   }
 
+  /**
+   * @return for every instruction, its position in the reverse postorder of a depth-first traversal of the whole flow;
+   * instructions reachable from the first one have positions from {@code result[0]} on. Only the successor arrays are
+   * built for it; callers having the owner should take {@link ControlFlowGraph#getPostorder()} of its cached graph.
+   */
   public static int[] postorder(Instruction[] flow) {
-    int[] result = new int[flow.length];
-    boolean[] visited = new boolean[flow.length];
-    for (int i = 0; i < result.length; i++) visited[i] = false;
-
-    int N = flow.length;
-    for (int i = 0; i < flow.length; i++) { //graph might not be connected
-      if (!visited[i]) N = doVisitForPostorder(flow[i], N, result, visited);
+    int[] successorStarts = new int[flow.length + 1];
+    for (Instruction instruction : flow) {
+      for (Instruction ignored : instruction.allSuccessors()) {
+        successorStarts[instruction.num() + 1]++;
+      }
+    }
+    for (int i = 0; i < flow.length; i++) {
+      successorStarts[i + 1] += successorStarts[i];
     }
 
-    LOG.assertTrue(N == 0);
-    return result;
+    int[] successors = new int[successorStarts[flow.length]];
+    for (Instruction instruction : flow) {
+      int k = successorStarts[instruction.num()];
+      for (Instruction successor : instruction.allSuccessors()) {
+        successors[k++] = successor.num();
+      }
+    }
+    return postorder(successorStarts, successors);
   }
 
-  private static int doVisitForPostorder(Instruction curr, int currN, int[] postorder, boolean[] visited) {
-    visited[curr.num()] = true;
-    for (Instruction succ : curr.allSuccessors()) {
-      if (!visited[succ.num()]) {
-        currN = doVisitForPostorder(succ, currN, postorder, visited);
+  /**
+   * Iterative form of {@link #postorder(Instruction[])} over CSR successor arrays: visits successors in the same order
+   * as a recursive traversal would, without using the call stack, so very long flows are fine.
+   */
+  static int[] postorder(int[] successorStarts, int[] successors) {
+    int n = successorStarts.length - 1;
+    int[] result = new int[n];
+    boolean[] visited = new boolean[n];
+    int[] stack = new int[n];
+    int[] nextSuccessor = new int[n];
+
+    int N = n;
+    for (int root = 0; root < n; root++) { //graph might not be connected
+      if (visited[root]) continue;
+
+      visited[root] = true;
+      nextSuccessor[root] = successorStarts[root];
+      int size = 0;
+      stack[size++] = root;
+      while (size > 0) {
+        int curr = stack[size - 1];
+        if (nextSuccessor[curr] < successorStarts[curr + 1]) {
+          int succ = successors[nextSuccessor[curr]++];
+          if (!visited[succ]) {
+            visited[succ] = true;
+            nextSuccessor[succ] = successorStarts[succ];
+            stack[size++] = succ;
+          }
+        }
+        else {
+          result[curr] = --N;
+          size--;
+        }
       }
     }
-    postorder[curr.num()] = --currN;
-    return currN;
+
+    LOG.assertTrue(N == 0);
+    return result;
   }
 
   public static ReadWriteVariableInstruction[] getReadsWithoutPriorWrites(Instruction[] flow, boolean onlyFirstRead) {
+    return getReadsWithoutPriorWrites(ControlFlowGraph.create(flow), onlyFirstRead);
+  }
+
+  /**
+   * Walks the instructions reachable from the start in reverse postorder, propagating the variables definitely assigned
+   * along forward edges only. An instruction's set is handed over to its last forward successor which has none yet, so
+   * a straight-line flow shares a single set instead of copying it at every instruction.
+   */
+  public static ReadWriteVariableInstruction[] getReadsWithoutPriorWrites(ControlFlowGraph graph, boolean onlyFirstRead) {
+    Instruction[] flow = graph.getFlow();
     List<ReadWriteVariableInstruction> result = new ArrayList<ReadWriteVariableInstruction>();
     ObjectIntMap<String> namesIndex = buildNamesIndex(flow);
 
-    IntSet[] definitelyAssigned = new IntSet[flow.length];
+    BitSet[] definitelyAssigned = new BitSet[flow.length];
 
-    int[] postorder = postorder(flow);
+    int[] postorder = graph.getPostorder();
     int[] invpostorder = invPostorder(postorder);
 
-    findReadsBeforeWrites(flow, definitelyAssigned, result, namesIndex, postorder, invpostorder, onlyFirstRead);
+    findReadsBeforeWrites(graph, definitelyAssigned, result, namesIndex, postorder, invpostorder, onlyFirstRead);
     if (result.size() == 0) return ReadWriteVariableInstruction.EMPTY_ARRAY;
     return result.toArray(new ReadWriteVariableInstruction[result.size()]);
   }
@@ -118,14 +167,18 @@ public class ControlFlowBuilderUtil {
     return namesIndex;
   }
 
-  private static void findReadsBeforeWrites(Instruction[] flow, IntSet[] definitelyAssigned,
+  private static void findReadsBeforeWrites(ControlFlowGraph graph, BitSet[] definitelyAssigned,
                                             List<ReadWriteVariableInstruction> result,
                                             ObjectIntMap<String> namesIndex,
                                             int[] postorder,
                                             int[] invpostorder,
                                             boolean onlyFirstRead) {
+    Instruction[] flow = graph.getFlow();
+    int[] successorStarts = graph.getSuccessorStarts();
+    int[] successors = graph.getSuccessors();
+
     //skip instructions that are not reachable from the start
-    int start = ArrayUtil.find(invpostorder, 0);
+    int start = postorder.length == 0 ? 0 : postorder[0];
 
     for (int i = start; i < flow.length; i++) {
       int j = invpostorder[i];
@@ -133,41 +186,46 @@ public class ControlFlowBuilderUtil {
       if (curr instanceof ReadWriteVariableInstruction) {
         ReadWriteVariableInstruction rw = (ReadWriteVariableInstruction)curr;
         int name = namesIndex.getInt(rw.getVariableName());
-        IntSet vars = definitelyAssigned[j];
+        BitSet vars = definitelyAssigned[j];
         if (rw.isWrite()) {
           if (vars == null) {
-            vars = IntSets.newHashSet();
+            vars = new BitSet();
             definitelyAssigned[j] = vars;
           }
-          vars.add(name);
+          vars.set(name);
         }
         else {
-          if (vars == null || !vars.contains(name)) {
+          if (vars == null || !vars.get(name)) {
             result.add(rw);
             if (onlyFirstRead) {
               if (vars == null) {
-                vars = IntSets.newHashSet();
+                vars = new BitSet();
                 definitelyAssigned[j] = vars;
               }
-              vars.add(name);
+              vars.set(name);
             }
           }
         }
       }
 
-      for (Instruction succ : curr.allSuccessors()) {
-        if (postorder[succ.num()] > postorder[curr.num()]) {
-          IntSet currDefinitelyAssigned = definitelyAssigned[curr.num()];
-          IntSet succDefinitelyAssigned = definitelyAssigned[succ.num()];
+      BitSet currDefinitelyAssigned = definitelyAssigned[j];
+      int lastToFill = -1;
+      for (int k = successorStarts[j]; k < successorStarts[j + 1]; k++) {
+        int succ = successors[k];
+        if (postorder[succ] > postorder[j] && definitelyAssigned[succ] == null) {
+          lastToFill = k;
+        }
+      }
+      for (int k = successorStarts[j]; k < successorStarts[j + 1]; k++) {
+        int succ = successors[k];
+        if (postorder[succ] > postorder[j]) {
+          BitSet succDefinitelyAssigned = definitelyAssigned[succ];
           if (currDefinitelyAssigned != null) {
-            int[] currArray = currDefinitelyAssigned.toArray();
             if (succDefinitelyAssigned == null) {
-              succDefinitelyAssigned = IntSets.newHashSet();
-              succDefinitelyAssigned.addAll(currArray);
-              definitelyAssigned[succ.num()] = succDefinitelyAssigned;
+              definitelyAssigned[succ] = k == lastToFill ? currDefinitelyAssigned : (BitSet)currDefinitelyAssigned.clone();
             }
-            else {
-              succDefinitelyAssigned.retainAll(IntLists.newArrayList(currArray));
+            else if (succDefinitelyAssigned != currDefinitelyAssigned) {
+              succDefinitelyAssigned.and(currDefinitelyAssigned);
             }
           }
           else {
@@ -175,12 +233,12 @@ public class ControlFlowBuilderUtil {
               succDefinitelyAssigned.clear();
             }
             else {
-              succDefinitelyAssigned = IntSets.newHashSet();
-              definitelyAssigned[succ.num()] = succDefinitelyAssigned;
+              definitelyAssigned[succ] = new BitSet();
             }
           }
         }
       }
+      definitelyAssigned[j] = null;
     }
   }
 
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.psi.controlFlow;
+
+import consulo.application.util.CachedValueProvider;
+import consulo.language.psi.PsiElement;
+import consulo.language.psi.PsiFile;
+import consulo.language.psi.util.LanguageCachedValueUtil;
+import consulo.util.collection.primitive.objects.ObjectIntMap;
+import consulo.util.collection.primitive.objects.ObjectMaps;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.jetbrains.plugins.groovy.lang.psi.GrControlFlowOwner;
+import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyCodeBlockModificationTracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact form of a control flow for the analyses which walk it many times: successors and predecessors of every
+ * instruction in CSR arrays indexed by {@link Instruction#num()}, the postorder, and the instructions of PSI elements.
+ * <p>
+ * Edges are those of {@link Instruction#allSuccessors()}; predecessors are their reverse, so that the two directions
+ * agree for call and return instructions too. The arrays returned by the getters are shared and must not be modified.
+ * <p>
+ * All traversals are iterative, so flows of generated scripts with tens of thousands of statements don't overflow the stack.
+ */
+public class ControlFlowGraph {
+  private final Instruction[] myFlow;
+  private final int[] mySuccessorStarts;
+  private final int[] mySuccessors;
+  private final int[] myPredecessorStarts;
+  private final int[] myPredecessors;
+  private final int[] myPostorder;
+  /**
+   * First instruction of every element, and first read or write instruction of every element
+   */
+  private final ObjectIntMap<PsiElement> myInstructions = ObjectMaps.newObjectIntHashMap();
+  private final ObjectIntMap<PsiElement> myReadWriteInstructions = ObjectMaps.newObjectIntHashMap();
+  /**
+   * Next instruction of the same element, -1 for the last one
+   */
+  private final int[] myNextOfElement;
+
+  private ControlFlowGraph(@Nonnull Instruction[] flow) {
+    myFlow = flow;
+    int n = flow.length;
+
+    mySuccessorStarts = new int[n + 1];
+    myPredecessorStarts = new int[n + 1];
+    for (Instruction instruction : flow) {
+      for (Instruction successor : instruction.allSuccessors()) {
+        mySuccessorStarts[instruction.num() + 1]++;
+        myPredecessorStarts[successor.num() + 1]++;
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      mySuccessorStarts[i + 1] += mySuccessorStarts[i];
+      myPredecessorStarts[i + 1] += myPredecessorStarts[i];
+    }
+
+    mySuccessors = new int[mySuccessorStarts[n]];
+    myPredecessors = new int[myPredecessorStarts[n]];
+    int[] successorFill = Arrays.copyOf(mySuccessorStarts, n);
+    int[] predecessorFill = Arrays.copyOf(myPredecessorStarts, n);
+    myNextOfElement = new int[n];
+    Arrays.fill(myNextOfElement, -1);
+    ObjectIntMap<PsiElement> lastInstructions = ObjectMaps.newObjectIntHashMap();
+    for (Instruction instruction : flow) {
+      int num = instruction.num();
+      for (Instruction successor : instruction.allSuccessors()) {
+        mySuccessors[successorFill[num]++] = successor.num();
+        myPredecessors[predecessorFill[successor.num()]++] = num;
+      }
+
+      PsiElement element = instruction.getElement();
+      if (element != null) {
+        if (lastInstructions.containsKey(element)) {
+          myNextOfElement[lastInstructions.getInt(element)] = num;
+        }
+        else {
+          myInstructions.putInt(element, num);
+        }
+        lastInstructions.putInt(element, num);
+        if (instruction instanceof ReadWriteVariableInstruction && !myReadWriteInstructions.containsKey(element)) {
+          myReadWriteInstructions.putInt(element, num);
+        }
+      }
+    }
+
+    myPostorder = ControlFlowBuilderUtil.postorder(mySuccessorStarts, mySuccessors);
+  }
+
+  @Nonnull
+  public static ControlFlowGraph create(@Nonnull Instruction[] flow) {
+    return new ControlFlowGraph(flow);
+  }
+
+  /**
+   * @return graph of the owner's current control flow, cached with it
+   */
+  @Nonnull
+  public static ControlFlowGraph getGraph(@Nonnull final GrControlFlowOwner owner) {
+    Instruction[] flow = owner.getControlFlow();
+    ControlFlowGraph graph = LanguageCachedValueUtil.getCachedValue(owner, new CachedValueProvider<ControlFlowGraph>() {
+      @Nullable
+      @Override
+      public Result<ControlFlowGraph> compute() {
+        return Result.create(new ControlFlowGraph(owner.getControlFlow()),
+                             GroovyCodeBlockModificationTracker.getInstance(owner.getProject()).getControlFlowTracker(owner));
+      }
+    });
+    // the flow of a file is kept by a soft reference, so it may be rebuilt while the graph is still cached
+    return graph.myFlow == flow ? graph : new ControlFlowGraph(flow);
+  }
+
+  @Nonnull
+  public Instruction[] getFlow() {
+    return myFlow;
+  }
+
+  public int size() {
+    return myFlow.length;
+  }
+
+  /**
+   * @return offsets into {@link #getSuccessors()}: successors of instruction {@code i} are at {@code [starts[i], starts[i + 1])}
+   */
+  @Nonnull
+  public int[] getSuccessorStarts() {
+    return mySuccessorStarts;
+  }
+
+  @Nonnull
+  public int[] getSuccessors() {
+    return mySuccessors;
+  }
+
+  /**
+   * @return offsets into {@link #getPredecessors()}, like {@link #getSuccessorStarts()}
+   */
+  @Nonnull
+  public int[] getPredecessorStarts() {
+    return myPredecessorStarts;
+  }
+
+  @Nonnull
+  public int[] getPredecessors() {
+    return myPredecessors;
+  }
+
+  /**
+   * @return postorder number of every instruction, as computed by {@link ControlFlowBuilderUtil#postorder(Instruction[])}
+   */
+  @Nonnull
+  public int[] getPostorder() {
+    return myPostorder;
+  }
+
+  /**
+   * @return whether the flow has a cycle, i.e. an edge which doesn't go forward in {@link #getPostorder() postorder}
+   */
+  public boolean hasLoops() {
+    for (int i = 0; i < myFlow.length; i++) {
+      for (int k = mySuccessorStarts[i]; k < mySuccessorStarts[i + 1]; k++) {
+        if (myPostorder[mySuccessors[k]] <= myPostorder[i]) return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  public ReadWriteVariableInstruction findReadWriteInstruction(@Nonnull PsiElement element) {
+    return myReadWriteInstructions.containsKey(element)
+           ? (ReadWriteVariableInstruction)myFlow[myReadWriteInstructions.getInt(element)]
+           : null;
+  }
+
+  /**
+   * @return instructions of {@code element} in flow order
+   */
+  @Nonnull
+  public List<Instruction> findAllInstructions(@Nonnull PsiElement element) {
+    if (!myInstructions.containsKey(element)) {
+      return Collections.emptyList();
+    }
+    List<Instruction> result = new ArrayList<Instruction>(1);
+    for (int i = myInstructions.getInt(element); i >= 0; i = myNextOfElement[i]) {
+      result.add(myFlow[i]);
+    }
+    return result;
+  }
+
+  /**
+   * @return first instruction of {@code place}, or of its closest ancestor having one
+   */
+  @Nullable
+  public Instruction findNearestInstruction(@Nonnull PsiElement place) {
+    for (PsiElement element = place; element != null; element = element.getParent()) {
+      if (myInstructions.containsKey(element)) {
+        return myFlow[myInstructions.getInt(element)];
+      }
+      if (element instanceof PsiFile) break;
+    }
+    return null;
+  }
+}
@@ -23,17 +23,23 @@ import org.jetbrains.plugins.groovy.lang.psi.controlFlow.CallInstruction;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.Instruction;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.NegatingGotoInstruction;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedHashSet;
 
 /**
+ * Edges are kept in exact-size arrays in insertion order: almost every instruction has one or two of them, so sets
+ * would cost more than the linear duplicate checks.
+ *
  * @author ven
  */
 public class InstructionImpl implements Instruction {
-  private final LinkedHashSet<InstructionImpl> myPredecessors = new LinkedHashSet<InstructionImpl>(1);
-  private final LinkedHashSet<InstructionImpl> mySuccessors = new LinkedHashSet<InstructionImpl>(1);
-  private LinkedHashSet<NegatingGotoInstruction> myNegations;
+  private static final InstructionImpl[] NO_INSTRUCTIONS = new InstructionImpl[0];
+  private static final NegatingGotoInstruction[] NO_NEGATIONS = new NegatingGotoInstruction[0];
+
+  private InstructionImpl[] myPredecessors = NO_INSTRUCTIONS;
+  private InstructionImpl[] mySuccessors = NO_INSTRUCTIONS;
+  private NegatingGotoInstruction[] myNegations = NO_NEGATIONS;
 
   protected final PsiElement myPsiElement;
   private int myNumber = -1;
@@ -53,7 +59,7 @@ public class InstructionImpl implements Instruction {
       environment.update(stack, instruction);
     }
 
-    return mySuccessors;
+    return Arrays.asList(mySuccessors);
   }
 
   public Iterable<? extends Instruction> predecessors(CallEnvironment environment) {
@@ -62,15 +68,15 @@ public class InstructionImpl implements Instruction {
       environment.update(stack, instruction);
     }
 
-    return myPredecessors;
+    return Arrays.asList(myPredecessors);
   }
 
   public Iterable<? extends Instruction> allSuccessors() {
-    return mySuccessors;
+    return Arrays.asList(mySuccessors);
   }
 
   public Iterable<? extends Instruction> allPredecessors() {
-    return myPredecessors;
+    return Arrays.asList(myPredecessors);
   }
 
   public String toString() {
@@ -81,7 +87,7 @@ public class InstructionImpl implements Instruction {
       builder.append(successor.myNumber);
       builder.append(',');
     }
-    if (!mySuccessors.isEmpty()) builder.delete(builder.length() - 1, builder.length());
+    if (mySuccessors.length > 0) builder.delete(builder.length() - 1, builder.length());
     builder.append(") ").append(getElementPresentation());
     return builder.toString();
   }
@@ -99,30 +105,36 @@ public class InstructionImpl implements Instruction {
   @Nonnull
   @Override
   public Iterable<? extends NegatingGotoInstruction> getNegatingGotoInstruction() {
-    if (myNegations == null) {
+    if (myNegations.length == 0) {
       return Collections.emptyList();
     }
-    return myNegations;
+    return Arrays.asList(myNegations);
   }
 
   public void addSuccessor(InstructionImpl instruction) {
-    mySuccessors.add(instruction);
+    mySuccessors = append(mySuccessors, instruction);
   }
 
   public void addPredecessor(InstructionImpl instruction) {
-    myPredecessors.add(instruction);
+    myPredecessors = append(myPredecessors, instruction);
   }
 
   void addNegationsFrom(Instruction instruction) {
-    if (myNegations == null) {
-      myNegations = new LinkedHashSet<NegatingGotoInstruction>(1);
-    }
     for (NegatingGotoInstruction negation : instruction.getNegatingGotoInstruction()) {
-      myNegations.add(negation);
+      myNegations = append(myNegations, negation);
     }
     if (instruction instanceof NegatingGotoInstruction) {
-      myNegations.add((NegatingGotoInstruction)instruction);
+      myNegations = append(myNegations, (NegatingGotoInstruction)instruction);
+    }
+  }
+
+  private static <T> T[] append(T[] array, T element) {
+    for (T t : array) {
+      if (t == element) return array;
     }
+    T[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = element;
+    return result;
   }
 
   final void setNumber(int num) {
@@ -18,8 +18,9 @@ package org.jetbrains.plugins.groovy.lang.psi.dataFlow;
 import consulo.application.progress.ProgressManager;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.CallEnvironment;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.CallInstruction;
-import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowBuilderUtil;
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowGraph;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.Instruction;
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ReturnInstruction;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -32,6 +33,8 @@ public class DFAEngine<E>
 {
 
 	private final Instruction[] myFlow;
+	@Nullable
+	private ControlFlowGraph myGraph;
 
 	private final DfaInstance<E> myDfa;
 	private final Semilattice<E> mySemilattice;
@@ -43,6 +46,12 @@ public class DFAEngine<E>
 		mySemilattice = semilattice;
 	}
 
+	public DFAEngine(@Nonnull ControlFlowGraph graph, DfaInstance<E> dfa, Semilattice<E> semilattice)
+	{
+		this(graph.getFlow(), dfa, semilattice);
+		myGraph = graph;
+	}
+
 	private static class MyCallEnvironment implements CallEnvironment
 	{
 		ArrayList<Deque<CallInstruction>> myEnv;
@@ -86,20 +95,25 @@ public class DFAEngine<E>
 	@Nullable
 	private ArrayList<E> performDFA(boolean timeout)
 	{
+		if(mySemilattice instanceof InPlaceSemilattice && !hasCalls(myFlow))
+		{
+			return performWorklistDFA((InPlaceSemilattice<E>) mySemilattice);
+		}
+
 		ArrayList<E> info = new ArrayList<E>(Collections.nCopies(myFlow.length, myDfa.initial()));
 		CallEnvironment env = new MyCallEnvironment(myFlow.length);
 
 		boolean[] visited = new boolean[myFlow.length];
 
 		boolean forward = myDfa.isForward();
-		int[] order = ControlFlowBuilderUtil.postorder(myFlow); //todo for backward?
+		int[] order = getGraph().getPostorder(); //todo for backward?
 		for(int i = forward ? 0 : myFlow.length - 1; forward ? i < myFlow.length : i >= 0; )
 		{
 			Instruction instr = myFlow[order[i]];
 
 			if(!visited[instr.num()])
 			{
-				Queue<Instruction> workList = new LinkedList<Instruction>();
+				Queue<Instruction> workList = new ArrayDeque<Instruction>();
 
 				workList.add(instr);
 				visited[instr.num()] = true;
@@ -138,6 +152,195 @@ public class DFAEngine<E>
 		return info;
 	}
 
+	@Nonnull
+	private ControlFlowGraph getGraph()
+	{
+		if(myGraph == null)
+		{
+			myGraph = ControlFlowGraph.create(myFlow);
+		}
+		return myGraph;
+	}
+
+	private static boolean hasCalls(Instruction[] flow)
+	{
+		for(Instruction instruction : flow)
+		{
+			if(instruction instanceof CallInstruction || instruction instanceof ReturnInstruction)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Worklist mode for flows without finally-calls: such flows need no call environment, so the adjacency arrays of the
+	 * {@link ControlFlowGraph} are walked directly and instructions are processed in reverse postorder. Flows without
+	 * loops, such as long straight-line scripts, take a single pass in that order and need no worklist at all.
+	 * States are joined in place and a replaced state is reused as the scratch buffer for the next iteration.
+	 */
+	@SuppressWarnings("unchecked")
+	private ArrayList<E> performWorklistDFA(InPlaceSemilattice<E> semilattice)
+	{
+		int n = myFlow.length;
+		boolean forward = myDfa.isForward();
+
+		ControlFlowGraph graph = getGraph();
+		int[] inStart = forward ? graph.getPredecessorStarts() : graph.getSuccessorStarts();
+		int[] ins = forward ? graph.getPredecessors() : graph.getSuccessors();
+		int[] outStart = forward ? graph.getSuccessorStarts() : graph.getPredecessorStarts();
+		int[] outs = forward ? graph.getSuccessors() : graph.getPredecessors();
+
+		int[] priority = graph.getPostorder();
+		if(!forward)
+		{
+			priority = new int[n];
+			for(int i = 0; i < n; i++)
+			{
+				priority[i] = n - 1 - graph.getPostorder()[i];
+			}
+		}
+
+		E initial = myDfa.initial();
+		E bottom = semilattice.create();
+		Object[] info = new Object[n];
+		Arrays.fill(info, initial);
+
+		// without loops every instruction is final once its inputs are, so a single pass in priority order is enough
+		boolean acyclic = !graph.hasLoops();
+		IntWorklist workList = null;
+		int[] byPriority = null;
+		if(acyclic)
+		{
+			byPriority = new int[n];
+			for(int i = 0; i < n; i++)
+			{
+				byPriority[priority[i]] = i;
+			}
+		}
+		else
+		{
+			workList = new IntWorklist(priority);
+			for(int i = 0; i < n; i++)
+			{
+				workList.offer(i);
+			}
+		}
+
+		E scratch = semilattice.create();
+		int processed = 0;
+		while(acyclic ? processed < n : !workList.isEmpty())
+		{
+			ProgressManager.checkCanceled();
+			int num = acyclic ? byPriority[processed++] : workList.poll();
+
+			int from = inStart[num];
+			int to = inStart[num + 1];
+			semilattice.copyInto(scratch, from == to ? bottom : (E) info[ins[from]]);
+			for(int i = from + 1; i < to; i++)
+			{
+				semilattice.joinInto(scratch, (E) info[ins[i]]);
+			}
+			myDfa.fun(scratch, myFlow[num]);
+
+			E oldE = (E) info[num];
+			if(!semilattice.eq(scratch, oldE))
+			{
+				info[num] = scratch;
+				scratch = oldE == initial ? semilattice.create() : oldE;
+				if(!acyclic)
+				{
+					for(int i = outStart[num]; i < outStart[num + 1]; i++)
+					{
+						workList.offer(outs[i]);
+					}
+				}
+			}
+		}
+
+		ArrayList<E> result = new ArrayList<E>(n);
+		for(Object e : info)
+		{
+			result.add((E) e);
+		}
+		return result;
+	}
+
+	/**
+	 * Binary min-heap over instruction numbers ordered by a fixed priority; an instruction is queued at most once.
+	 */
+	private static class IntWorklist
+	{
+		private final int[] myPriority;
+		private final int[] myHeap;
+		private final boolean[] myQueued;
+		private int mySize;
+
+		private IntWorklist(int[] priority)
+		{
+			myPriority = priority;
+			myHeap = new int[priority.length];
+			myQueued = new boolean[priority.length];
+		}
+
+		boolean isEmpty()
+		{
+			return mySize == 0;
+		}
+
+		void offer(int num)
+		{
+			if(myQueued[num])
+			{
+				return;
+			}
+			myQueued[num] = true;
+
+			int i = mySize++;
+			while(i > 0)
+			{
+				int parent = (i - 1) >>> 1;
+				if(myPriority[myHeap[parent]] <= myPriority[num])
+				{
+					break;
+				}
+				myHeap[i] = myHeap[parent];
+				i = parent;
+			}
+			myHeap[i] = num;
+		}
+
+		int poll()
+		{
+			int result = myHeap[0];
+			myQueued[result] = false;
+
+			int last = myHeap[--mySize];
+			int i = 0;
+			while(true)
+			{
+				int child = 2 * i + 1;
+				if(child >= mySize)
+				{
+					break;
+				}
+				if(child + 1 < mySize && myPriority[myHeap[child + 1]] < myPriority[myHeap[child]])
+				{
+					child++;
+				}
+				if(myPriority[last] <= myPriority[myHeap[child]])
+				{
+					break;
+				}
+				myHeap[i] = myHeap[child];
+				i = child;
+			}
+			myHeap[i] = last;
+			return result;
+		}
+	}
+
 	private E join(Instruction instruction, ArrayList<E> info, CallEnvironment env)
 	{
 		Iterable<? extends Instruction> prev = myDfa.isForward() ? instruction.predecessors(env) : instruction.successors(env);
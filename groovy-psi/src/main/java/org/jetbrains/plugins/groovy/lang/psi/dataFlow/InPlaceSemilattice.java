@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.psi.dataFlow;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Semilattice which can join states into a reusable target instead of allocating a new state for every join.
+ * {@link DFAEngine} uses it to run its worklist with near-zero per-iteration allocation.
+ * <p>
+ * {@code copyInto(t, a)} followed by {@code joinInto(t, b)}, {@code joinInto(t, c)}, ... must leave {@code t}
+ * equal (in terms of {@link #eq}) to {@code join([a, b, c, ...])}.
+ */
+public interface InPlaceSemilattice<E> extends Semilattice<E> {
+  /**
+   * @return a new state equal to the join of an empty list of states. The engine owns the result and may mutate it.
+   */
+  @Nonnull
+  E create();
+
+  /**
+   * Makes {@code target} equal to {@code source}. {@code source} must not be modified and must not share mutable parts with
+   * {@code target} afterwards.
+   */
+  void copyInto(@Nonnull E target, @Nonnull E source);
+
+  /**
+   * Joins {@code source} into {@code target}. {@code source} must not be modified.
+   */
+  void joinInto(@Nonnull E target, @Nonnull E source);
+}
@@ -15,67 +15,71 @@
  */
 package org.jetbrains.plugins.groovy.lang.psi.dataFlow.reachingDefs;
 
-import consulo.util.collection.primitive.ints.*;
+import consulo.util.collection.ArrayUtil;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.Instruction;
 
 import jakarta.annotation.Nullable;
-import java.util.function.Consumer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
 
 /**
+ * Maps variable index to the set of definitions (instruction numbers) reaching it.
+ * <p>
+ * Definition sets are immutable and shared between maps; the index array itself is shared copy-on-write,
+ * so instructions which do not change the state of their predecessor share all of its storage.
+ *
  * @author peter
  */
 public class DefinitionMap
 {
-	private final IntObjectMap<IntSet> myMap = IntMaps.newIntObjectHashMap();
+	private static final Defs[] NO_DEFS = new Defs[0];
+
+	private Defs[] myDefs = NO_DEFS;
+	private boolean myShared;
 
 	public void registerDef(Instruction varInsn, int varId)
 	{
-		IntSet defs = myMap.get(varId);
-		if(defs == null)
-		{
-			myMap.put(varId, defs = IntSets.newHashSet());
-		}
-		else
-		{
-			defs.clear();
-		}
-		defs.add(varInsn.num());
+		set(varId, Defs.singleton(varInsn.num()));
 	}
 
 	public void merge(DefinitionMap map2)
 	{
-		map2.myMap.forEach(new IntObjConsumer<IntSet>()
+		Defs[] defs2 = map2.myDefs;
+		if(defs2 == myDefs)
+		{
+			return;
+		}
+		for(int i = 0; i < defs2.length; i++)
 		{
-			public void accept(int num, IntSet defs)
+			Defs theirs = defs2[i];
+			if(theirs != null)
 			{
-				IntSet defs2 = myMap.get(num);
-				if(defs2 == null)
-				{
-					defs2 = IntSets.newHashSet(defs.toArray());
-					myMap.put(num, defs2);
-				}
-				else
-				{
-					defs2.addAll(defs.toArray());
-				}
+				Defs mine = get(i);
+				set(i, mine == null ? theirs : mine.union(theirs));
 			}
-		});
+		}
+	}
+
+	public void copyFrom(DefinitionMap map)
+	{
+		myDefs = map.myDefs;
+		myShared = true;
+		map.myShared = true;
 	}
 
 	public boolean eq(DefinitionMap m2)
 	{
-		if(myMap.size() != m2.myMap.size())
+		if(myDefs == m2.myDefs)
 		{
-			return false;
+			return true;
 		}
 
-		for(IntObjectMap.IntObjectEntry<IntSet> entry : myMap.entrySet())
+		int length = Math.max(myDefs.length, m2.myDefs.length);
+		for(int i = 0; i < length; i++)
 		{
-			int num = entry.getKey();
-			IntSet defs1 = entry.getValue();
-
-			IntSet defs2 = m2.myMap.get(num);
-			if(!(defs2 != null && defs2.equals(defs1)))
+			Defs defs1 = get(i);
+			Defs defs2 = m2.get(i);
+			if(defs1 != defs2 && (defs1 == null || !defs1.equals(defs2)))
 			{
 				return false;
 			}
@@ -85,23 +89,249 @@ public class DefinitionMap
 
 	public void copyFrom(DefinitionMap map, int fromIndex, int toIndex)
 	{
-		IntSet defs = map.myMap.get(fromIndex);
-		if(defs == null)
+		Defs defs = map.get(fromIndex);
+		set(toIndex, defs == null ? Defs.EMPTY : defs);
+	}
+
+	@Nullable
+	public int[] getDefinitions(int varId)
+	{
+		Defs defs = get(varId);
+		return defs == null ? null : defs.toArray();
+	}
+
+	public void forEachDefinition(IntConsumer consumer)
+	{
+		for(Defs defs : myDefs)
 		{
-			defs = IntSets.newHashSet();
+			if(defs != null)
+			{
+				defs.forEach(consumer);
+			}
 		}
-		myMap.put(toIndex, defs);
 	}
 
 	@Nullable
-	public int[] getDefinitions(int varId)
+	private Defs get(int varId)
 	{
-		IntSet set = myMap.get(varId);
-		return set == null ? null : set.toArray();
+		return varId >= 0 && varId < myDefs.length ? myDefs[varId] : null;
 	}
 
-	public void forEachValue(Consumer<IntSet> procedure)
+	private void set(int varId, Defs defs)
 	{
-		myMap.values().forEach(procedure);
+		if(get(varId) == defs)
+		{
+			return;
+		}
+		if(varId >= myDefs.length)
+		{
+			myDefs = Arrays.copyOf(myDefs, Math.max(varId + 1, myDefs.length * 2));
+			myShared = false;
+		}
+		else if(myShared)
+		{
+			myDefs = myDefs.clone();
+			myShared = false;
+		}
+		myDefs[varId] = defs;
+	}
+
+	/**
+	 * Immutable set of instruction numbers: a sorted {@code int[]} while small, a {@code long[]} bitset otherwise.
+	 * The representation depends only on the size, so equal sets have equal arrays.
+	 */
+	private static final class Defs
+	{
+		private static final int SPARSE_LIMIT = 8;
+		private static final Defs EMPTY = new Defs(ArrayUtil.EMPTY_INT_ARRAY, null, 0);
+
+		private final int[] mySparse;
+		private final long[] myWords;
+		private final int mySize;
+
+		private Defs(int[] sparse, long[] words, int size)
+		{
+			mySparse = sparse;
+			myWords = words;
+			mySize = size;
+		}
+
+		static Defs singleton(int num)
+		{
+			return new Defs(new int[]{num}, null, 1);
+		}
+
+		boolean contains(int num)
+		{
+			if(myWords == null)
+			{
+				return Arrays.binarySearch(mySparse, num) >= 0;
+			}
+			int word = num >>> 6;
+			return word < myWords.length && (myWords[word] & (1L << num)) != 0;
+		}
+
+		boolean containsAll(Defs other)
+		{
+			if(other.mySize > mySize)
+			{
+				return false;
+			}
+			if(myWords != null && other.myWords != null)
+			{
+				long[] words = other.myWords;
+				if(words.length > myWords.length)
+				{
+					return false;
+				}
+				for(int i = 0; i < words.length; i++)
+				{
+					if((words[i] & ~myWords[i]) != 0)
+					{
+						return false;
+					}
+				}
+				return true;
+			}
+			if(other.myWords != null)
+			{
+				return false;
+			}
+			for(int num : other.mySparse)
+			{
+				if(!contains(num))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		Defs union(Defs other)
+		{
+			if(this == other || containsAll(other))
+			{
+				return this;
+			}
+			if(other.containsAll(this))
+			{
+				return other;
+			}
+
+			int max = Math.max(max(), other.max());
+			long[] words = new long[(max >>> 6) + 1];
+			fill(words);
+			other.fill(words);
+			int size = 0;
+			for(long word : words)
+			{
+				size += Long.bitCount(word);
+			}
+			if(size > SPARSE_LIMIT)
+			{
+				return new Defs(null, words, size);
+			}
+
+			int[] sparse = new int[size];
+			int j = 0;
+			for(int i = 0; i < words.length; i++)
+			{
+				for(long word = words[i]; word != 0; word &= word - 1)
+				{
+					sparse[j++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				}
+			}
+			return new Defs(sparse, null, size);
+		}
+
+		private int max()
+		{
+			if(mySize == 0)
+			{
+				return 0;
+			}
+			if(myWords == null)
+			{
+				return mySparse[mySparse.length - 1];
+			}
+			int last = myWords.length - 1;
+			return (last << 6) + 63 - Long.numberOfLeadingZeros(myWords[last]);
+		}
+
+		private void fill(long[] words)
+		{
+			if(myWords == null)
+			{
+				for(int num : mySparse)
+				{
+					words[num >>> 6] |= 1L << num;
+				}
+			}
+			else
+			{
+				for(int i = 0; i < myWords.length; i++)
+				{
+					words[i] |= myWords[i];
+				}
+			}
+		}
+
+		int[] toArray()
+		{
+			if(myWords == null)
+			{
+				return mySparse.clone();
+			}
+			int[] result = new int[mySize];
+			int j = 0;
+			for(int i = 0; i < myWords.length; i++)
+			{
+				for(long word = myWords[i]; word != 0; word &= word - 1)
+				{
+					result[j++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				}
+			}
+			return result;
+		}
+
+		void forEach(IntConsumer consumer)
+		{
+			if(myWords == null)
+			{
+				for(int num : mySparse)
+				{
+					consumer.accept(num);
+				}
+				return;
+			}
+			for(int i = 0; i < myWords.length; i++)
+			{
+				for(long word = myWords[i]; word != 0; word &= word - 1)
+				{
+					consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+				}
+			}
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(this == o)
+			{
+				return true;
+			}
+			if(!(o instanceof Defs))
+			{
+				return false;
+			}
+			Defs defs = (Defs) o;
+			return mySize == defs.mySize && Arrays.equals(mySparse, defs.mySparse) && Arrays.equals(myWords, defs.myWords);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return myWords == null ? Arrays.hashCode(mySparse) : Arrays.hashCode(myWords);
+		}
 	}
 }
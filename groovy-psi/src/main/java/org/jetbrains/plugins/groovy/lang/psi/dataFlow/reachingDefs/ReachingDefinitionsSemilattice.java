@@ -15,14 +15,15 @@
  */
 package org.jetbrains.plugins.groovy.lang.psi.dataFlow.reachingDefs;
 
-import org.jetbrains.plugins.groovy.lang.psi.dataFlow.Semilattice;
+import jakarta.annotation.Nonnull;
+import org.jetbrains.plugins.groovy.lang.psi.dataFlow.InPlaceSemilattice;
 
 import java.util.ArrayList;
 
 /**
  * @author ven
  */
-public class ReachingDefinitionsSemilattice implements Semilattice<DefinitionMap> {
+public class ReachingDefinitionsSemilattice implements InPlaceSemilattice<DefinitionMap> {
   public DefinitionMap join(ArrayList<DefinitionMap> ins) {
     if (ins.isEmpty()) return new DefinitionMap();
 
@@ -37,4 +38,20 @@ public class ReachingDefinitionsSemilattice implements Semilattice<DefinitionMap
   public boolean eq(DefinitionMap m1, DefinitionMap m2) {
     return m1.eq(m2);
   }
+
+  @Nonnull
+  @Override
+  public DefinitionMap create() {
+    return new DefinitionMap();
+  }
+
+  @Override
+  public void copyInto(@Nonnull DefinitionMap target, @Nonnull DefinitionMap source) {
+    target.copyFrom(source);
+  }
+
+  @Override
+  public void joinInto(@Nonnull DefinitionMap target, @Nonnull DefinitionMap source) {
+    target.merge(source);
+  }
 }
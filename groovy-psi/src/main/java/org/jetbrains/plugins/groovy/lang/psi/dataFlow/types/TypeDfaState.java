@@ -45,6 +45,11 @@ class TypeDfaState {
     return state;
   }
 
+  void copyFrom(TypeDfaState another) {
+    myVarTypes.clear();
+    myVarTypes.putAll(another.myVarTypes);
+  }
+
   void joinState(TypeDfaState another, PsiManager manager) {
     for (Map.Entry<String, DFAType> entry : another.myVarTypes.entrySet()) {
       String name = entry.getKey();
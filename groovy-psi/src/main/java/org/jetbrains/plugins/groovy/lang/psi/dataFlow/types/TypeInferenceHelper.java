@@ -20,7 +20,6 @@ import com.intellij.java.language.psi.util.PsiUtil;
 import consulo.application.util.CachedValueProvider;
 import consulo.application.util.function.Computable;
 import consulo.language.psi.PsiElement;
-import consulo.language.psi.PsiModificationTracker;
 import consulo.language.psi.PsiRecursiveElementWalkingVisitor;
 import consulo.language.psi.util.LanguageCachedValueUtil;
 import consulo.language.psi.util.PsiTreeUtil;
@@ -36,6 +35,7 @@ import org.jetbrains.plugins.groovy.lang.psi.api.auxiliary.GrListOrMap;
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.GrVariable;
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.expressions.*;
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.expressions.path.GrIndexProperty;
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowGraph;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.InstanceOfInstruction;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.Instruction;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.MixinTypeInstruction;
@@ -48,6 +48,7 @@ import org.jetbrains.plugins.groovy.lang.psi.dataFlow.reachingDefs.DefinitionMap
 import org.jetbrains.plugins.groovy.lang.psi.dataFlow.reachingDefs.ReachingDefinitionsDfaInstance;
 import org.jetbrains.plugins.groovy.lang.psi.dataFlow.reachingDefs.ReachingDefinitionsSemilattice;
 import org.jetbrains.plugins.groovy.lang.psi.impl.GrTupleType;
+import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyCodeBlockModificationTracker;
 import org.jetbrains.plugins.groovy.lang.psi.impl.InferenceContext;
 import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.TypesUtil;
 
@@ -92,8 +93,7 @@ public class TypeInferenceHelper {
       return null;
     }
 
-    ReadWriteVariableInstruction rwInstruction = ControlFlowUtils.findRWInstruction(refExpr,
-                                                                                          scope.getControlFlow());
+    ReadWriteVariableInstruction rwInstruction = ControlFlowGraph.getGraph(scope).findReadWriteInstruction(refExpr);
     if (rwInstruction == null) {
       return null;
     }
@@ -108,7 +108,7 @@ public class TypeInferenceHelper {
       return null;
     }
 
-    Instruction nearest = ControlFlowUtils.findNearestInstruction(place, scope.getControlFlow());
+    Instruction nearest = ControlFlowGraph.getGraph(scope).findNearestInstruction(place);
     if (nearest == null) {
       return null;
     }
@@ -121,7 +121,8 @@ public class TypeInferenceHelper {
       @Nullable
       @Override
       public Result<InferenceCache> compute() {
-        return Result.create(new InferenceCache(scope), PsiModificationTracker.MODIFICATION_COUNT);
+        return Result.create(new InferenceCache(scope),
+                             GroovyCodeBlockModificationTracker.getInstance(scope.getProject()).getInferenceTracker(scope));
       }
     });
   }
@@ -170,7 +171,8 @@ public class TypeInferenceHelper {
       List<DefinitionMap>>>() {
       @Override
       public Result<Pair<ReachingDefinitionsDfaInstance, List<DefinitionMap>>> compute() {
-        final Instruction[] flow = scope.getControlFlow();
+        ControlFlowGraph graph = ControlFlowGraph.getGraph(scope);
+        final Instruction[] flow = graph.getFlow();
         ReachingDefinitionsDfaInstance dfaInstance = new ReachingDefinitionsDfaInstance(flow) {
           @Override
           public void fun(DefinitionMap m, Instruction instruction) {
@@ -196,11 +198,11 @@ public class TypeInferenceHelper {
           }
         };
         ReachingDefinitionsSemilattice lattice = new ReachingDefinitionsSemilattice();
-        DFAEngine<DefinitionMap> engine = new DFAEngine<DefinitionMap>(flow, dfaInstance, lattice);
+        DFAEngine<DefinitionMap> engine = new DFAEngine<DefinitionMap>(graph, dfaInstance, lattice);
         List<DefinitionMap> dfaResult = engine.performDFAWithTimeout();
         Pair<ReachingDefinitionsDfaInstance, List<DefinitionMap>> result = dfaResult == null ? null : Pair
           .create(dfaInstance, dfaResult);
-        return Result.create(result, PsiModificationTracker.MODIFICATION_COUNT);
+        return Result.create(result, GroovyCodeBlockModificationTracker.getInstance(scope.getProject()).getControlFlowTracker(scope));
       }
     });
   }
@@ -425,13 +427,15 @@ public class TypeInferenceHelper {
 
   private static class InferenceCache {
     final GrControlFlowOwner scope;
+    final ControlFlowGraph graph;
     final Instruction[] flow;
     final AtomicReference<List<TypeDfaState>> varTypes;
     final Set<Instruction> tooComplex = ContainerUtil.newConcurrentSet();
 
     InferenceCache(GrControlFlowOwner scope) {
       this.scope = scope;
-      this.flow = scope.getControlFlow();
+      this.graph = ControlFlowGraph.getGraph(scope);
+      this.flow = graph.getFlow();
       List<TypeDfaState> noTypes = new ArrayList<TypeDfaState>();
       //noinspection ForLoopReplaceableByForEach
       for (int i = 0; i < flow.length; i++) {
@@ -455,7 +459,7 @@ public class TypeInferenceHelper {
         }
 
         Set<Instruction> interesting = collectRequiredInstructions(instruction, variableName, defUse);
-        List<TypeDfaState> dfaResult = performTypeDfa(scope, flow, interesting);
+        List<TypeDfaState> dfaResult = performTypeDfa(scope, graph, interesting);
         if (dfaResult == null) {
           tooComplex.addAll(interesting);
         }
@@ -469,11 +473,11 @@ public class TypeInferenceHelper {
 
     @Nullable
     private List<TypeDfaState> performTypeDfa(@Nonnull GrControlFlowOwner owner,
-                                              @Nonnull Instruction[] flow,
+                                              @Nonnull ControlFlowGraph graph,
                                               @Nonnull Set<Instruction> interesting) {
-      TypeDfaInstance dfaInstance = new TypeDfaInstance(owner, flow, interesting, this);
+      TypeDfaInstance dfaInstance = new TypeDfaInstance(owner, graph.getFlow(), interesting, this);
       TypesSemilattice semilattice = new TypesSemilattice(owner.getManager());
-      return new DFAEngine<TypeDfaState>(flow, dfaInstance, semilattice).performDFAWithTimeout();
+      return new DFAEngine<TypeDfaState>(graph, dfaInstance, semilattice).performDFAWithTimeout();
     }
 
     @Nullable
@@ -533,7 +537,7 @@ public class TypeInferenceHelper {
           if (element instanceof GrReferenceExpression && !((GrReferenceExpression)element).isQualified()) {
             String varName = ((GrReferenceExpression)element).getReferenceName();
             if (varName != null) {
-              for (Instruction dependency : ControlFlowUtils.findAllInstructions(element, flow)) {
+              for (Instruction dependency : graph.findAllInstructions(element)) {
                 result.add(Pair.create(dependency, varName));
               }
             }
@@ -3,12 +3,13 @@ package org.jetbrains.plugins.groovy.lang.psi.dataFlow.types;
 import java.util.ArrayList;
 
 import consulo.language.psi.PsiManager;
-import org.jetbrains.plugins.groovy.lang.psi.dataFlow.Semilattice;
+import jakarta.annotation.Nonnull;
+import org.jetbrains.plugins.groovy.lang.psi.dataFlow.InPlaceSemilattice;
 
 /**
  * @author ven
  */
-public class TypesSemilattice implements Semilattice<TypeDfaState>
+public class TypesSemilattice implements InPlaceSemilattice<TypeDfaState>
 {
   private final PsiManager myManager;
 
@@ -29,4 +30,20 @@ public class TypesSemilattice implements Semilattice<TypeDfaState>
   public boolean eq(TypeDfaState e1, TypeDfaState e2) {
     return e1.contentsEqual(e2);
   }
+
+  @Nonnull
+  @Override
+  public TypeDfaState create() {
+    return new TypeDfaState();
+  }
+
+  @Override
+  public void copyInto(@Nonnull TypeDfaState target, @Nonnull TypeDfaState source) {
+    target.copyFrom(source);
+  }
+
+  @Override
+  public void joinInto(@Nonnull TypeDfaState target, @Nonnull TypeDfaState source) {
+    target.joinState(source, myManager);
+  }
 }
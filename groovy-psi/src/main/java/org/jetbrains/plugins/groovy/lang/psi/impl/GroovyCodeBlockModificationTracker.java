@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.psi.impl;
+
+import com.intellij.java.language.psi.PsiMember;
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.component.util.ModificationTracker;
+import consulo.component.util.SimpleModificationTracker;
+import consulo.ide.ServiceManager;
+import consulo.language.psi.PsiElement;
+import consulo.language.psi.PsiFile;
+import consulo.language.psi.PsiManager;
+import consulo.language.psi.event.PsiTreeChangeAdapter;
+import consulo.language.psi.event.PsiTreeChangeEvent;
+import consulo.module.content.ProjectRootManager;
+import consulo.project.Project;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.jetbrains.plugins.groovy.lang.psi.GrControlFlowOwner;
+import org.jetbrains.plugins.groovy.lang.psi.GroovyFileBase;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.GrClassInitializer;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.GrStatement;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.GrVariableDeclaration;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.blocks.GrOpenBlock;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.typedef.GrTypeDefinition;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.typedef.members.GrMethod;
+import org.jetbrains.plugins.groovy.lang.psi.util.GroovyCommonClassNames;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells apart PSI changes made inside Groovy code blocks (method and initializer bodies, script statements)
+ * from changes which may affect declarations visible elsewhere.
+ * <p>
+ * Results computed from the control flow of a {@link GrControlFlowOwner} depend on the owner's subtree, on the owners
+ * it captures declarations from, on the out-of-code-block state and on the project roots, since references inside may
+ * resolve to SDK or library classes; see {@link #getControlFlowTracker(GrControlFlowOwner)}.
+ * Edits inside a code block only bump the modification count of the enclosing owners
+ * (see {@link GrControlFlowOwner#getSubtreeModificationCount()}), so caches of other methods survive them.
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GroovyCodeBlockModificationTracker {
+  private final SimpleModificationTracker myOutOfCodeBlockTracker = new SimpleModificationTracker();
+  private final SimpleModificationTracker myInferredReturnTypesTracker = new SimpleModificationTracker();
+  private final ProjectRootManager myRootManager;
+
+  @Inject
+  public GroovyCodeBlockModificationTracker(Project project) {
+    myRootManager = ProjectRootManager.getInstance(project);
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event.getParent());
+      }
+
+      @Override
+      public void childRemoved(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event.getParent());
+      }
+
+      @Override
+      public void childReplaced(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event.getParent());
+      }
+
+      @Override
+      public void childrenChanged(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event.getParent());
+      }
+
+      @Override
+      public void childMoved(@Nonnull PsiTreeChangeEvent event) {
+        treeChanged(event.getOldParent());
+        treeChanged(event.getNewParent());
+      }
+
+      @Override
+      public void propertyChanged(@Nonnull PsiTreeChangeEvent event) {
+        myOutOfCodeBlockTracker.incModificationCount();
+      }
+    }, project);
+  }
+
+  public static GroovyCodeBlockModificationTracker getInstance(Project project) {
+    return ServiceManager.getService(project, GroovyCodeBlockModificationTracker.class);
+  }
+
+  /**
+   * @return tracker of changes which are not confined to a Groovy code block
+   */
+  @Nonnull
+  public ModificationTracker getOutOfCodeBlockTracker() {
+    return myOutOfCodeBlockTracker;
+  }
+
+  /**
+   * @return tracker for results computed from the control flow of {@code owner} only
+   */
+  @Nonnull
+  public ModificationTracker getControlFlowTracker(@Nonnull GrControlFlowOwner owner) {
+    return new OwnerTracker(collectOwners(owner), false);
+  }
+
+  /**
+   * Like {@link #getControlFlowTracker(GrControlFlowOwner)}, but also changes when a body of a method without declared
+   * return type is edited, since types inferred inside {@code owner} may depend on such a method's inferred return type.
+   */
+  @Nonnull
+  public ModificationTracker getInferenceTracker(@Nonnull GrControlFlowOwner owner) {
+    return new OwnerTracker(collectOwners(owner), true);
+  }
+
+  private void treeChanged(@Nullable PsiElement parent) {
+    PsiElement block = parent == null ? null : findEnclosingCodeBlock(parent);
+    if (block == null) {
+      myOutOfCodeBlockTracker.incModificationCount();
+    }
+    else if (isInferredReturnTypeBody(block)) {
+      myInferredReturnTypesTracker.incModificationCount();
+    }
+  }
+
+  /**
+   * @return whether {@code block} is the body of a method whose return type is inferred from it
+   */
+  public static boolean isInferredReturnTypeBody(@Nonnull PsiElement block) {
+    PsiElement parent = block.getParent();
+    return parent instanceof GrMethod && !((GrMethod)parent).isConstructor() && ((GrMethod)parent).getReturnTypeElementGroovy() == null;
+  }
+
+  /**
+   * @return body of a method or class initializer, or a statement of a script body, containing {@code element};
+   * {@code null} if the element is not inside a Groovy code block
+   */
+  @Nullable
+  public static PsiElement findEnclosingCodeBlock(@Nonnull PsiElement element) {
+    if (isDslFile(element.getContainingFile())) {
+      return null;
+    }
+    for (PsiElement e = element; e != null && !(e instanceof PsiFile); e = e.getParent()) {
+      if (isCodeBlock(e)) {
+        return e;
+      }
+      if (e instanceof PsiMember) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Unlike {@link #findEnclosingCodeBlock(PsiElement)}, looks through local and anonymous classes, so the result is the
+   * code block of a top-level member (or a script statement) containing {@code element}.
+   */
+  @Nullable
+  public static PsiElement findOutermostCodeBlock(@Nonnull PsiElement element) {
+    PsiElement result = null;
+    for (PsiElement e = element; e != null && !(e instanceof PsiFile); e = e.getParent()) {
+      if (isCodeBlock(e)) {
+        result = e;
+      }
+    }
+    return result;
+  }
+
+  private static boolean isCodeBlock(@Nonnull PsiElement element) {
+    PsiElement parent = element.getParent();
+    if (element instanceof GrOpenBlock && (parent instanceof GrMethod || parent instanceof GrClassInitializer)) {
+      return true;
+    }
+    return parent instanceof GroovyFileBase && ((GroovyFileBase)parent).isScript() && isScriptBodyStatement(element);
+  }
+
+  private static boolean isDslFile(@Nullable PsiFile file) {
+    return file == null || file.getName().endsWith(".gdsl");
+  }
+
+  private static boolean isScriptBodyStatement(@Nonnull PsiElement element) {
+    if (!(element instanceof GrStatement) || element instanceof GrTypeDefinition || element instanceof GrMethod) {
+      return false;
+    }
+    return !(element instanceof GrVariableDeclaration) ||
+           ((GrVariableDeclaration)element).getModifierList().findAnnotation(GroovyCommonClassNames.GROOVY_TRANSFORM_FIELD) == null;
+  }
+
+  /**
+   * Collects {@code owner} and the enclosing owners it can capture declarations from. The file is included for script
+   * and non-physical files only: script methods see the script's binding variables, and changes in non-physical files
+   * are not reported to the tree change listener.
+   */
+  @Nonnull
+  private static List<GrControlFlowOwner> collectOwners(@Nonnull GrControlFlowOwner owner) {
+    List<GrControlFlowOwner> owners = new ArrayList<GrControlFlowOwner>();
+    owners.add(owner);
+    if (owner instanceof GroovyFileBase) {
+      return owners;
+    }
+
+    boolean crossedMember = false;
+    for (PsiElement e = owner.getContext(); e != null; e = e.getContext()) {
+      if (e instanceof GroovyFileBase) {
+        GroovyFileBase file = (GroovyFileBase)e;
+        if (!crossedMember || file.isScript() || !file.isPhysical()) {
+          owners.add(file);
+        }
+        break;
+      }
+      if (e instanceof PsiFile) {
+        break;
+      }
+      if (e instanceof PsiMember) {
+        crossedMember = true;
+      }
+      else if (e instanceof GrControlFlowOwner) {
+        owners.add((GrControlFlowOwner)e);
+      }
+    }
+    return owners;
+  }
+
+  private class OwnerTracker implements ModificationTracker {
+    private final List<GrControlFlowOwner> myOwners;
+    private final boolean myInference;
+
+    private OwnerTracker(@Nonnull List<GrControlFlowOwner> owners, boolean inference) {
+      myOwners = owners;
+      myInference = inference;
+    }
+
+    @Override
+    public long getModificationCount() {
+      long count = myOutOfCodeBlockTracker.getModificationCount() + myRootManager.getModificationCount();
+      if (myInference) {
+        count += myInferredReturnTypesTracker.getModificationCount();
+      }
+      for (GrControlFlowOwner owner : myOwners) {
+        count += owner.getSubtreeModificationCount();
+      }
+      return count;
+    }
+  }
+}
@@ -223,9 +223,17 @@ public abstract class GroovyFileBaseImpl extends PsiFileBase implements GroovyFi
   @Override
   public void clearCaches() {
     super.clearCaches();
+    myModificationCount++;
     myControlFlow = null;
   }
 
+  private volatile long myModificationCount;
+
+  @Override
+  public long getSubtreeModificationCount() {
+    return myModificationCount;
+  }
+
   private volatile SoftReference<Instruction[]> myControlFlow = null;
 
   @Override
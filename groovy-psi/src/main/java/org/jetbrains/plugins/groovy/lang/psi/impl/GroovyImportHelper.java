@@ -15,13 +15,22 @@
  */
 package org.jetbrains.plugins.groovy.lang.psi.impl;
 
+import com.intellij.java.language.impl.psi.scope.NameHint;
 import com.intellij.java.language.psi.JavaPsiFacade;
 import com.intellij.java.language.psi.PsiClass;
+import com.intellij.java.language.psi.PsiJavaPackage;
+import consulo.application.util.CachedValueProvider;
+import consulo.application.util.CachedValuesManager;
 import consulo.language.psi.PsiElement;
 import consulo.language.psi.PsiPackage;
 import consulo.language.psi.resolve.PsiScopeProcessor;
 import consulo.language.psi.resolve.ResolveState;
+import consulo.language.psi.scope.GlobalSearchScope;
+import consulo.module.content.ProjectRootManager;
+import consulo.project.Project;
 import consulo.util.collection.ContainerUtil;
+import consulo.util.collection.Maps;
+import consulo.util.lang.Pair;
 import org.jetbrains.plugins.groovy.lang.psi.GroovyFile;
 import org.jetbrains.plugins.groovy.lang.psi.GroovyFileBase;
 import org.jetbrains.plugins.groovy.lang.psi.api.toplevel.imports.GrImportStatement;
@@ -32,7 +41,11 @@ import org.jetbrains.plugins.groovy.lang.resolve.processors.ClassHint;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Max Medvedev
@@ -104,6 +117,17 @@ public class GroovyImportHelper {
       return true;
     }
 
+    NameHint nameHint = processor.getHint(NameHint.KEY);
+    String expectedName = nameHint != null ? nameHint.getName(state) : null;
+    if (expectedName != null) {
+      for (PsiClass aClass : getImplicitlyImportedClasses(file, expectedName)) {
+        if (!processor.execute(aClass, state)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     JavaPsiFacade facade = JavaPsiFacade.getInstance(file.getProject());
 
     PsiScopeProcessor packageSkipper = new PackageSkippingProcessor(processor);
@@ -128,4 +152,60 @@ public class GroovyImportHelper {
     }
     return true;
   }
+
+  /**
+   * @return classes named {@code shortName} from the implicitly imported packages and classes of {@code file}, in the order
+   * {@link #processImplicitImports} would process them. Lookups are memoized per resolve scope and set of implicitly imported
+   * packages until roots or declarations outside of code blocks change.
+   */
+  @Nonnull
+  private static PsiClass[] getImplicitlyImportedClasses(@Nonnull GroovyFile file, @Nonnull String shortName) {
+    final Project project = file.getProject();
+    Map<Pair<GlobalSearchScope, List<String>>, Map<String, PsiClass[]>> tables =
+      CachedValuesManager.getManager(project).getCachedValue(project, new CachedValueProvider<Map<Pair<GlobalSearchScope, List<String>>, Map<String, PsiClass[]>>>() {
+        @Override
+        public Result<Map<Pair<GlobalSearchScope, List<String>>, Map<String, PsiClass[]>>> compute() {
+          return Result.create(new ConcurrentHashMap<Pair<GlobalSearchScope, List<String>>, Map<String, PsiClass[]>>(),
+                               GroovyCodeBlockModificationTracker.getInstance(project).getOutOfCodeBlockTracker(),
+                               ProjectRootManager.getInstance(project));
+        }
+      });
+
+    GlobalSearchScope scope = file.getResolveScope();
+    List<String> packages = new ArrayList<String>(getImplicitlyImportedPackages(file));
+    Pair<GlobalSearchScope, List<String>> key = Pair.create(scope, packages);
+    Map<String, PsiClass[]> table = tables.get(key);
+    if (table == null) {
+      table = Maps.cacheOrGet(tables, key, new ConcurrentHashMap<String, PsiClass[]>());
+    }
+
+    PsiClass[] classes = table.get(shortName);
+    if (classes == null) {
+      classes = Maps.cacheOrGet(table, shortName, findImplicitlyImportedClasses(project, scope, packages, shortName));
+    }
+    return classes;
+  }
+
+  @Nonnull
+  private static PsiClass[] findImplicitlyImportedClasses(@Nonnull Project project,
+                                                          @Nonnull GlobalSearchScope scope,
+                                                          @Nonnull List<String> packages,
+                                                          @Nonnull String shortName) {
+    JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+    List<PsiClass> result = new ArrayList<PsiClass>();
+    for (String implicitlyImported : packages) {
+      PsiPackage aPackage = facade.findPackage(implicitlyImported);
+      if (aPackage instanceof PsiJavaPackage) {
+        ContainerUtil.addAll(result, ((PsiJavaPackage)aPackage).findClassByShortName(shortName, scope));
+      }
+    }
+
+    GroovyPsiManager groovyPsiManager = GroovyPsiManager.getInstance(project);
+    for (String implicitlyImportedClass : GroovyFileBase.IMPLICITLY_IMPORTED_CLASSES) {
+      if (implicitlyImportedClass.endsWith("." + shortName)) {
+        ContainerUtil.addIfNotNull(result, groovyPsiManager.findClassWithCache(implicitlyImportedClass, scope));
+      }
+    }
+    return result.isEmpty() ? PsiClass.EMPTY_ARRAY : result.toArray(new PsiClass[result.size()]);
+  }
 }
@@ -28,8 +28,13 @@ import consulo.component.messagebus.MessageBusConnection;
 import consulo.ide.ServiceManager;
 import consulo.language.psi.AnyPsiChangeListener;
 import consulo.language.psi.PsiElement;
+import consulo.language.psi.PsiFile;
+import consulo.language.psi.PsiManager;
 import consulo.language.psi.PsiReference;
+import consulo.language.psi.event.PsiTreeChangeAdapter;
+import consulo.language.psi.event.PsiTreeChangeEvent;
 import consulo.language.psi.scope.GlobalSearchScope;
+import consulo.language.psi.util.PsiTreeUtil;
 import consulo.language.util.IncorrectOperationException;
 import consulo.logging.Logger;
 import consulo.module.content.layer.event.ModuleRootAdapter;
@@ -41,6 +46,7 @@ import consulo.util.collection.Maps;
 import consulo.util.lang.ref.SoftReference;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import org.jetbrains.plugins.groovy.lang.psi.GroovyFileBase;
 import org.jetbrains.plugins.groovy.lang.psi.GroovyPsiElement;
 import org.jetbrains.plugins.groovy.lang.psi.GroovyPsiElementFactory;
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.typedef.GrTypeDefinition;
@@ -53,6 +59,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import static com.intellij.java.language.psi.CommonClassNames.*;
@@ -77,10 +84,19 @@ public class GroovyPsiManager {
 
   private volatile Map<String, GrTypeDefinition> myArrayClass = new HashMap<String, GrTypeDefinition>();
 
-  private final ConcurrentMap<GroovyPsiElement, PsiType> myCalculatedTypes = ContainerUtil.createConcurrentWeakMap();
+  /**
+   * Calculated types partitioned by {@link #getPartitionKey(PsiElement)}: the outermost code block containing the element
+   * or, for elements outside code blocks and for scripts, the containing file.
+   */
+  private final ConcurrentMap<PsiElement, ConcurrentMap<GroovyPsiElement, PsiType>> myCalculatedTypes = ContainerUtil.createConcurrentWeakMap();
+  private final ConcurrentMap<GroovyPsiElement, PsiType> myFilelessTypes = ContainerUtil.createConcurrentWeakMap();
   private final ConcurrentMap<String, SoftReference<Map<GlobalSearchScope, PsiClass>>> myClassCache = ContainerUtil.newConcurrentMap();
   private final ConcurrentMap<PsiMember, Boolean> myCompileStatic = ContainerUtil.newConcurrentMap();
 
+  private final AtomicLong myTypeCacheHits = new AtomicLong();
+  private final AtomicLong myTypeCacheMisses = new AtomicLong();
+  private final AtomicLong myTypeCacheEvictions = new AtomicLong();
+
   private static final RecursionGuard<PsiElement> ourGuard = RecursionManager.createGuard("groovyPsiManager");
 
   @Inject
@@ -90,14 +106,49 @@ public class GroovyPsiManager {
     myProject.getMessageBus().connect().subscribe(AnyPsiChangeListener.class, new AnyPsiChangeListener() {
       @Override
       public void beforePsiChanged(boolean isPhysical) {
-        dropTypesCache();
-
         if (isPhysical) {
           myClassCache.clear();
         }
+        else {
+          // changes in non-physical files are not reported to tree change listeners
+          dropNonPhysicalTypes();
+        }
       }
     });
 
+    PsiManager.getInstance(myProject).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void beforeChildAddition(@Nonnull PsiTreeChangeEvent event) {
+        beforeTreeChange(event.getParent());
+      }
+
+      @Override
+      public void beforeChildRemoval(@Nonnull PsiTreeChangeEvent event) {
+        beforeTreeChange(event.getParent());
+      }
+
+      @Override
+      public void beforeChildReplacement(@Nonnull PsiTreeChangeEvent event) {
+        beforeTreeChange(event.getParent());
+      }
+
+      @Override
+      public void beforeChildrenChange(@Nonnull PsiTreeChangeEvent event) {
+        beforeTreeChange(event.getParent());
+      }
+
+      @Override
+      public void beforeChildMovement(@Nonnull PsiTreeChangeEvent event) {
+        beforeTreeChange(event.getOldParent());
+        beforeTreeChange(event.getNewParent());
+      }
+
+      @Override
+      public void beforePropertyChange(@Nonnull PsiTreeChangeEvent event) {
+        dropTypesCache();
+      }
+    }, myProject);
+
     MessageBusConnection connection = myProject.getMessageBus().connect();
     connection.subscribe(ModuleRootListener.class, new ModuleRootAdapter() {
       public void rootsChanged(ModuleRootEvent event) {
@@ -108,10 +159,98 @@ public class GroovyPsiManager {
   }
 
   public void dropTypesCache() {
+    for (ConcurrentMap<GroovyPsiElement, PsiType> partition : myCalculatedTypes.values()) {
+      myTypeCacheEvictions.addAndGet(partition.size());
+    }
+    myTypeCacheEvictions.addAndGet(myFilelessTypes.size());
     myCalculatedTypes.clear();
+    myFilelessTypes.clear();
     myCompileStatic.clear();
   }
 
+  /**
+   * Evicts only the types which may depend on the changed code: a change inside a method body (or initializer) of a
+   * non-script file drops the types calculated inside that body. Other changes may affect declarations visible from
+   * everywhere, as does a change in the body of a method with inferred return type, so they drop the whole cache.
+   */
+  private void beforeTreeChange(@Nullable PsiElement parent) {
+    PsiElement block = parent == null ? null : GroovyCodeBlockModificationTracker.findEnclosingCodeBlock(parent);
+    if (block == null || GroovyCodeBlockModificationTracker.isInferredReturnTypeBody(block)) {
+      dropTypesCache();
+      return;
+    }
+
+    PsiElement key = getPartitionKey(block);
+    if (key != null) {
+      evictPartition(key);
+    }
+    for (PsiMember member : myCompileStatic.keySet()) {
+      if (PsiTreeUtil.isAncestor(block, member, false)) {
+        myCompileStatic.remove(member);
+      }
+    }
+  }
+
+  private void dropNonPhysicalTypes() {
+    for (PsiElement key : myCalculatedTypes.keySet()) {
+      if (!key.isPhysical()) {
+        evictPartition(key);
+      }
+    }
+    myTypeCacheEvictions.addAndGet(myFilelessTypes.size());
+    myFilelessTypes.clear();
+    for (PsiMember member : myCompileStatic.keySet()) {
+      if (!member.isPhysical()) {
+        myCompileStatic.remove(member);
+      }
+    }
+  }
+
+  private void evictPartition(@Nonnull PsiElement key) {
+    ConcurrentMap<GroovyPsiElement, PsiType> partition = myCalculatedTypes.remove(key);
+    if (partition != null) {
+      myTypeCacheEvictions.addAndGet(partition.size());
+    }
+  }
+
+  @Nullable
+  private static PsiElement getPartitionKey(@Nonnull PsiElement element) {
+    PsiFile file = element.getContainingFile();
+    if (file == null || file instanceof GroovyFileBase && ((GroovyFileBase)file).isScript()) {
+      return file;
+    }
+    PsiElement block = GroovyCodeBlockModificationTracker.findOutermostCodeBlock(element);
+    return block != null ? block : file;
+  }
+
+  @Nonnull
+  private ConcurrentMap<GroovyPsiElement, PsiType> getPartition(@Nonnull GroovyPsiElement element) {
+    PsiElement key = getPartitionKey(element);
+    if (key == null) {
+      return myFilelessTypes;
+    }
+    ConcurrentMap<GroovyPsiElement, PsiType> partition = myCalculatedTypes.get(key);
+    if (partition == null) {
+      partition = Maps.cacheOrGet(myCalculatedTypes, key, ContainerUtil.<GroovyPsiElement, PsiType>createConcurrentWeakMap());
+    }
+    return partition;
+  }
+
+  public long getTypeCacheHits() {
+    return myTypeCacheHits.get();
+  }
+
+  public long getTypeCacheMisses() {
+    return myTypeCacheMisses.get();
+  }
+
+  /**
+   * @return number of calculated types dropped from the cache because of PSI or root changes
+   */
+  public long getTypeCacheEvictions() {
+    return myTypeCacheEvictions.get();
+  }
+
   public static boolean isInheritorCached(@Nullable PsiClass aClass, @Nonnull String baseClassName) {
     if (aClass == null) return false;
 
@@ -195,18 +334,24 @@ public class GroovyPsiManager {
 
   @Nullable
   public <T extends GroovyPsiElement> PsiType getType(@Nonnull T element, @Nonnull Function<T, PsiType> calculator) {
-    PsiType type = myCalculatedTypes.get(element);
-    if (type == null) {
+    PsiType type = getPartition(element).get(element);
+    if (type != null) {
+      myTypeCacheHits.incrementAndGet();
+    }
+    else {
+      myTypeCacheMisses.incrementAndGet();
       RecursionGuard.StackStamp stamp = RecursionManager.markStack();
       type = calculator.apply(element);
       if (type == null) {
         type = UNKNOWN_TYPE;
       }
+      // the partition may have been evicted while calculating
+      ConcurrentMap<GroovyPsiElement, PsiType> partition = getPartition(element);
       if (stamp.mayCacheNow()) {
-        type = Maps.cacheOrGet(myCalculatedTypes, element, type);
+        type = Maps.cacheOrGet(partition, element, type);
       }
       else {
-        PsiType alreadyInferred = myCalculatedTypes.get(element);
+        PsiType alreadyInferred = partition.get(element);
         if (alreadyInferred != null) {
           type = alreadyInferred;
         }
@@ -27,7 +27,6 @@ import consulo.language.impl.psi.ASTDelegatePsiElement;
 import consulo.language.impl.psi.CheckUtil;
 import consulo.language.impl.psi.LazyParseablePsiElement;
 import consulo.language.psi.PsiElement;
-import consulo.language.psi.PsiModificationTracker;
 import consulo.language.psi.resolve.PsiScopeProcessor;
 import consulo.language.psi.resolve.ResolveState;
 import consulo.language.util.IncorrectOperationException;
@@ -43,6 +42,7 @@ import org.jetbrains.plugins.groovy.lang.psi.api.statements.expressions.literals
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.params.GrParameterList;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.Instruction;
 import org.jetbrains.plugins.groovy.lang.psi.controlFlow.impl.ControlFlowBuilder;
+import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyCodeBlockModificationTracker;
 import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyPsiElementImpl;
 import org.jetbrains.plugins.groovy.lang.psi.impl.PsiImplUtil;
 import org.jetbrains.plugins.groovy.lang.psi.util.PsiUtil;
@@ -57,6 +57,8 @@ import jakarta.annotation.Nullable;
 public abstract class GrBlockImpl extends LazyParseablePsiElement implements GrCodeBlock, GrControlFlowOwner {
   private static final Key<CachedValue<Instruction[]>> CONTROL_FLOW = Key.create("Control flow");
 
+  private volatile long myModificationCount;
+
   protected GrBlockImpl(@Nonnull IElementType type, CharSequence buffer) {
     super(type, buffer);
   }
@@ -89,9 +91,15 @@ public abstract class GrBlockImpl extends LazyParseablePsiElement implements GrC
   @Override
   public void clearCaches() {
     super.clearCaches();
+    myModificationCount++;
     putUserData(CONTROL_FLOW, null);
   }
 
+  @Override
+  public long getSubtreeModificationCount() {
+    return myModificationCount;
+  }
+
   @Override
   public void deleteChildInternal(@Nonnull ASTNode child) {
     PsiElement element = child.getPsi();
@@ -120,7 +128,7 @@ public abstract class GrBlockImpl extends LazyParseablePsiElement implements GrC
           try {
             //ResolveProfiler.start();
             Instruction[] flow = new ControlFlowBuilder(getProject()).buildControlFlow(GrBlockImpl.this);
-            return Result.create(flow, getContainingFile(), PsiModificationTracker.MODIFICATION_COUNT);
+            return Result.create(flow, GroovyCodeBlockModificationTracker.getInstance(getProject()).getControlFlowTracker(GrBlockImpl.this));
           }
           finally {
             //final long time = ResolveProfiler.finish();
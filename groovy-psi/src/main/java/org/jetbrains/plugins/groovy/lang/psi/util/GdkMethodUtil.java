@@ -54,12 +54,11 @@ import org.jetbrains.plugins.groovy.lang.psi.impl.GrTupleType;
 import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyPsiManager;
 import org.jetbrains.plugins.groovy.lang.psi.impl.PsiImplUtil;
 import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.TypesUtil;
-import org.jetbrains.plugins.groovy.lang.psi.impl.synthetic.GrGdkMethodImpl;
 import org.jetbrains.plugins.groovy.lang.psi.impl.synthetic.GrLightMethodBuilder;
 import org.jetbrains.plugins.groovy.lang.resolve.ResolveUtil;
+import org.jetbrains.plugins.groovy.lang.resolve.noncode.GdkMethodHolder;
 import org.jetbrains.plugins.groovy.lang.resolve.noncode.MixinMemberContributor;
 import org.jetbrains.plugins.groovy.lang.resolve.processors.ClassHint;
-import org.jetbrains.plugins.groovy.lang.resolve.processors.GrDelegatingScopeProcessorWithHints;
 
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -203,19 +202,10 @@ public class GdkMethodUtil {
                                                final PsiScopeProcessor processor,
                                                @Nonnull ResolveState state,
                                                @Nonnull PsiClass categoryClass) {
-    PsiScopeProcessor delegate = new GrDelegatingScopeProcessorWithHints(processor, null,
-                                                                               ClassHint.RESOLVE_KINDS_METHOD) {
-      @Override
-      public boolean execute(@Nonnull PsiElement element, @Nonnull ResolveState delegateState) {
-        if (element instanceof PsiMethod && isCategoryMethod((PsiMethod)element, null, null, null)) {
-          PsiMethod method = (PsiMethod)element;
-          return processor.execute(GrGdkMethodImpl.createGdkMethod(method, false,
-                                                                   generateOriginInfo(method)), delegateState);
-        }
-        return true;
-      }
-    };
-    return categoryClass.processDeclarations(delegate, state, null, place);
+    if (!ResolveUtil.shouldProcessMethods(processor.getHint(ClassHint.KEY))) {
+      return true;
+    }
+    return GdkMethodHolder.getCategoryHolder(categoryClass, place.getResolveScope()).processCategoryMethods(processor, state);
   }
 
   @Nullable
@@ -412,21 +412,7 @@ public class ResolveUtil {
         }
       });
 
-    PsiClass cls = PsiUtil.resolveClassInType(base);
-    String key;
-    if (cls instanceof PsiTypeParameter) {
-      PsiClass superClass = cls.getSuperClass();
-      key = cls.getName() + (superClass == null ? CommonClassNames.JAVA_LANG_OBJECT : superClass.getName());
-    }
-    else if (base instanceof GrTraitType) {
-      key = ((GrTraitType)base).erasure().getCanonicalText();
-    }
-    else if (base instanceof PsiClassType) {
-      key = TypesUtil.getQualifiedName(base);
-    }
-    else {
-      key = base.getCanonicalText();
-    }
+    String key = getSuperTypesKey(base);
     Map<String, PsiType> result = key == null ? null : cache.get(key);
     if (result == null) {
       result = new HashMap<String, PsiType>();
@@ -438,6 +424,38 @@ public class ResolveUtil {
     return result;
   }
 
+  /**
+   * @return key of the types having the same supertypes as {@code type}: a type parameter is identified by its name and
+   * bounds, a trait type by its erasure, a class type by its qualified name; null for types of local classes and for
+   * bounds which have no key themselves
+   */
+  @Nullable
+  public static String getSuperTypesKey(@Nonnull PsiType type) {
+    PsiClass cls = PsiUtil.resolveClassInType(type);
+    if (cls instanceof PsiTypeParameter) {
+      StringBuilder key = new StringBuilder(cls.getName()).append(':');
+      PsiClassType[] bounds = cls.getExtendsListTypes();
+      if (bounds.length == 0) {
+        key.append(CommonClassNames.JAVA_LANG_OBJECT);
+      }
+      for (int i = 0; i < bounds.length; i++) {
+        String boundKey = getSuperTypesKey(bounds[i]);
+        if (boundKey == null) {
+          return null;
+        }
+        key.append(i == 0 ? "" : "&").append(boundKey);
+      }
+      return key.toString();
+    }
+    if (type instanceof GrTraitType) {
+      return ((GrTraitType)type).erasure().getCanonicalText();
+    }
+    if (type instanceof PsiClassType) {
+      return TypesUtil.getQualifiedName(type);
+    }
+    return type.getCanonicalText();
+  }
+
   @Nonnull
   private static String rawCanonicalText(@Nonnull PsiType type) {
     if (type instanceof PsiClassType) {
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.resolve.noncode;
+
+import com.intellij.java.language.impl.psi.scope.NameHint;
+import com.intellij.java.language.psi.JavaPsiFacade;
+import com.intellij.java.language.psi.PsiClass;
+import com.intellij.java.language.psi.PsiType;
+import consulo.application.util.CachedValueProvider;
+import consulo.application.util.CachedValuesManager;
+import consulo.language.psi.PsiModificationTracker;
+import consulo.language.psi.resolve.PsiScopeProcessor;
+import consulo.language.psi.resolve.ResolveState;
+import consulo.language.psi.scope.GlobalSearchScope;
+import consulo.module.content.ProjectRootManager;
+import consulo.project.Project;
+import consulo.util.collection.Maps;
+import consulo.util.lang.Pair;
+import jakarta.annotation.Nonnull;
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.typedef.members.GrGdkMethod;
+import org.jetbrains.plugins.groovy.lang.resolve.ResolveUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flattened view of several {@link GdkMethodHolder}s: maps a receiver type and a method name to all GDK and extension
+ * methods applicable to the receiver or any of its supertypes, so that repeated resolves of the same name on the same
+ * receiver cost a single lookup instead of probing every holder for every supertype.
+ * <p>
+ * Tables are shared per resolve scope and set of category classes and dropped on any PSI or root change, since receiver
+ * hierarchies may change with them. The holders themselves live longer, see {@link GdkMethodHolder#getHolderForClass}.
+ *
+ * @see #getTable(Project, GlobalSearchScope, List, List)
+ */
+public class GdkMethodDispatchTable {
+  private static final GrGdkMethod[] EMPTY = new GrGdkMethod[0];
+
+  private final List<GdkMethodHolder> myHolders;
+  private final Map<Pair<String, String>, GrGdkMethod[]> myDispatch = new ConcurrentHashMap<Pair<String, String>, GrGdkMethod[]>();
+
+  private GdkMethodDispatchTable(@Nonnull List<GdkMethodHolder> holders) {
+    myHolders = holders;
+  }
+
+  /**
+   * @param instanceCategories qualified names of classes whose methods are added to instances of their first parameter type
+   * @param staticCategories   qualified names of classes whose methods are added as static methods
+   */
+  @Nonnull
+  public static GdkMethodDispatchTable getTable(@Nonnull final Project project,
+                                                @Nonnull GlobalSearchScope resolveScope,
+                                                @Nonnull List<String> instanceCategories,
+                                                @Nonnull List<String> staticCategories) {
+    Map<Object, GdkMethodDispatchTable> tables =
+      CachedValuesManager.getManager(project).getCachedValue(project, new CachedValueProvider<Map<Object, GdkMethodDispatchTable>>() {
+        @Override
+        public Result<Map<Object, GdkMethodDispatchTable>> compute() {
+          return Result.create(new ConcurrentHashMap<Object, GdkMethodDispatchTable>(),
+                               PsiModificationTracker.MODIFICATION_COUNT,
+                               ProjectRootManager.getInstance(project));
+        }
+      });
+
+    Object key = Pair.create(resolveScope, Pair.create(instanceCategories, staticCategories));
+    GdkMethodDispatchTable table = tables.get(key);
+    if (table == null) {
+      List<GdkMethodHolder> holders = new ArrayList<GdkMethodHolder>();
+      collectHolders(project, resolveScope, instanceCategories, false, holders);
+      collectHolders(project, resolveScope, staticCategories, true, holders);
+      table = Maps.cacheOrGet(tables, key, new GdkMethodDispatchTable(holders));
+    }
+    return table;
+  }
+
+  private static void collectHolders(@Nonnull Project project,
+                                     @Nonnull GlobalSearchScope resolveScope,
+                                     @Nonnull List<String> categories,
+                                     boolean isStatic,
+                                     @Nonnull List<GdkMethodHolder> holders) {
+    JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+    for (String category : categories) {
+      PsiClass clazz = facade.findClass(category, resolveScope);
+      if (clazz != null) {
+        holders.add(GdkMethodHolder.getHolderForClass(clazz, isStatic, resolveScope));
+      }
+    }
+  }
+
+  public boolean processMethods(@Nonnull PsiScopeProcessor processor,
+                                @Nonnull ResolveState state,
+                                @Nonnull PsiType qualifierType,
+                                @Nonnull Project project) {
+    NameHint nameHint = processor.getHint(NameHint.KEY);
+    String name = nameHint == null ? null : nameHint.getName(state);
+
+    for (GrGdkMethod method : getMethods(qualifierType, name, project)) {
+      if (!processor.execute(method, state)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Nonnull
+  private GrGdkMethod[] getMethods(@Nonnull PsiType qualifierType, String name, @Nonnull Project project) {
+    // the methods depend on the supertypes only, so the receiver is keyed as by ResolveUtil.getAllSuperTypes
+    String typeKey = ResolveUtil.getSuperTypesKey(qualifierType);
+    if (typeKey == null) {
+      return computeMethods(qualifierType, name, project);
+    }
+
+    Pair<String, String> key = Pair.create(typeKey, name);
+    GrGdkMethod[] methods = myDispatch.get(key);
+    if (methods == null) {
+      methods = Maps.cacheOrGet(myDispatch, key, computeMethods(qualifierType, name, project));
+    }
+    return methods;
+  }
+
+  @Nonnull
+  private GrGdkMethod[] computeMethods(@Nonnull PsiType qualifierType, String name, @Nonnull Project project) {
+    List<GrGdkMethod> result = new ArrayList<GrGdkMethod>();
+    Set<String> superTypes = ResolveUtil.getAllSuperTypes(qualifierType, project).keySet();
+    for (GdkMethodHolder holder : myHolders) {
+      for (String superType : superTypes) {
+        result.addAll(holder.getMethods(name, superType));
+      }
+    }
+    return result.isEmpty() ? EMPTY : result.toArray(new GrGdkMethod[result.size()]);
+  }
+}
@@ -13,7 +13,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.jetbrains.plugins.groovy.impl.dgm;
+package org.jetbrains.plugins.groovy.lang.resolve.noncode;
 
 import com.intellij.java.language.impl.psi.scope.NameHint;
 import com.intellij.java.language.psi.*;
@@ -30,12 +30,16 @@ import consulo.util.collection.MultiMap;
 import consulo.util.dataholder.Key;
 import consulo.virtualFileSystem.VirtualFile;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.typedef.members.GrGdkMethod;
 import org.jetbrains.plugins.groovy.lang.psi.impl.statements.expressions.TypesUtil;
 import org.jetbrains.plugins.groovy.lang.psi.impl.synthetic.GrGdkMethodImpl;
 import org.jetbrains.plugins.groovy.lang.psi.util.GdkMethodUtil;
 import org.jetbrains.plugins.groovy.lang.resolve.ResolveUtil;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -44,19 +48,24 @@ import java.util.Map;
 public class GdkMethodHolder {
   private static Key<CachedValue<GdkMethodHolder>> CACHED_NON_STATIC = Key.create("Cached instance gdk method holder");
   private static Key<CachedValue<GdkMethodHolder>> CACHED_STATIC = Key.create("Cached static gdk method holder");
+  private static Key<CachedValue<GdkMethodHolder>> CACHED_CATEGORY = Key.create("Cached use() category method holder");
 
   private final Map<String, MultiMap<String, PsiMethod>> myOriginalMethodsByNameAndType;
   private final NotNullLazyValue<MultiMap<String, PsiMethod>> myOriginalMethodByType;
+  /**
+   * Wrappers of category methods, shared by all resolves while this holder is cached
+   */
+  private final Map<PsiMethod, GrGdkMethod> myGdkMethods;
   private final boolean myStatic;
   private final GlobalSearchScope myScope;
   private final PsiManager myPsiManager;
 
-  private GdkMethodHolder(PsiClass categoryClass, boolean isStatic, GlobalSearchScope scope) {
+  private GdkMethodHolder(PsiClass categoryClass, boolean isStatic, boolean withInherited, GlobalSearchScope scope) {
     myStatic = isStatic;
     myScope = scope;
     final MultiMap<String, PsiMethod> byName = new MultiMap<>();
     myPsiManager = categoryClass.getManager();
-    for (PsiMethod m : categoryClass.getMethods()) {
+    for (PsiMethod m : withInherited ? getVisibleMethods(categoryClass) : categoryClass.getMethods()) {
       PsiParameter[] params = m.getParameterList().getParameters();
       if (params.length == 0) {
         continue;
@@ -86,6 +95,19 @@ public class GdkMethodHolder {
       }
       return map;
     });
+
+    myGdkMethods = ConcurrentFactoryMap.createMap(method -> GrGdkMethodImpl.createGdkMethod(method, myStatic, GdkMethodUtil.generateOriginInfo(method)));
+  }
+
+  /**
+   * @return methods of the class and the inherited ones not hidden by it
+   */
+  private static List<PsiMethod> getVisibleMethods(PsiClass aClass) {
+    List<PsiMethod> result = new ArrayList<PsiMethod>();
+    for (HierarchicalMethodSignature signature : aClass.getVisibleSignatures()) {
+      result.add(signature.getMethod());
+    }
+    return result;
   }
 
   private PsiType getCategoryTargetType(PsiMethod method) {
@@ -93,6 +115,39 @@ public class GdkMethodHolder {
     return TypesUtil.boxPrimitiveType(TypeConversionUtil.erasure(parameterType), myPsiManager, myScope);
   }
 
+  /**
+   * @return wrapped methods named {@code name} (any public method if {@code name} is null) whose category target type
+   * erases to {@code targetType}
+   */
+  @Nonnull
+  public List<GrGdkMethod> getMethods(@Nullable String name, @Nonnull String targetType) {
+    MultiMap<String, PsiMethod> map = name != null ? myOriginalMethodsByNameAndType.get(name) : myOriginalMethodByType.getValue();
+    if (map.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<GrGdkMethod> result = new ArrayList<GrGdkMethod>();
+    for (PsiMethod method : map.get(targetType)) {
+      result.add(myGdkMethods.get(method));
+    }
+    return result;
+  }
+
+  /**
+   * Processes category methods regardless of their target type, as {@code use(Category) {}} does. Static methods
+   * inherited by the category class are category methods too, so the holder should be {@link #getCategoryHolder}.
+   */
+  public boolean processCategoryMethods(PsiScopeProcessor processor, ResolveState state) {
+    NameHint nameHint = processor.getHint(NameHint.KEY);
+    String name = nameHint == null ? null : nameHint.getName(state);
+    MultiMap<String, PsiMethod> map = name != null ? myOriginalMethodsByNameAndType.get(name) : myOriginalMethodByType.getValue();
+    for (PsiMethod method : map.values()) {
+      if (GdkMethodUtil.isCategoryMethod(method, null, null, null) && !processor.execute(myGdkMethods.get(method), state)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public boolean processMethods(PsiScopeProcessor processor, ResolveState state, PsiType qualifierType, Project project) {
     if (qualifierType == null) {
       return true;
@@ -107,9 +162,7 @@ public class GdkMethodHolder {
 
     for (String superType : ResolveUtil.getAllSuperTypes(qualifierType, project).keySet()) {
       for (PsiMethod method : map.get(superType)) {
-        String info = GdkMethodUtil.generateOriginInfo(method);
-        GrGdkMethod gdk = GrGdkMethodImpl.createGdkMethod(method, myStatic, info);
-        if (!processor.execute(gdk, state)) {
+        if (!processor.execute(myGdkMethods.get(method), state)) {
           return false;
         }
       }
@@ -119,12 +172,26 @@ public class GdkMethodHolder {
   }
 
   public static GdkMethodHolder getHolderForClass(final PsiClass categoryClass, final boolean isStatic, final GlobalSearchScope scope) {
+    return getHolder(categoryClass, isStatic, false, isStatic ? CACHED_STATIC : CACHED_NON_STATIC, scope);
+  }
+
+  /**
+   * @return holder of the methods of a class used as a category, including the ones it inherits
+   */
+  public static GdkMethodHolder getCategoryHolder(final PsiClass categoryClass, final GlobalSearchScope scope) {
+    return getHolder(categoryClass, false, true, CACHED_CATEGORY, scope);
+  }
+
+  private static GdkMethodHolder getHolder(final PsiClass categoryClass,
+                                           final boolean isStatic,
+                                           final boolean withInherited,
+                                           Key<CachedValue<GdkMethodHolder>> key,
+                                           final GlobalSearchScope scope) {
     final Project project = categoryClass.getProject();
-    Key<CachedValue<GdkMethodHolder>> key = isStatic ? CACHED_STATIC : CACHED_NON_STATIC;
     return CachedValuesManager.getManager(project).getCachedValue(categoryClass, key, new CachedValueProvider<GdkMethodHolder>() {
       @Override
       public Result<GdkMethodHolder> compute() {
-        GdkMethodHolder result = new GdkMethodHolder(categoryClass, isStatic, scope);
+        GdkMethodHolder result = new GdkMethodHolder(categoryClass, isStatic, withInherited, scope);
 
         ProjectRootManager rootManager = ProjectRootManager.getInstance(project);
         VirtualFile vfile = categoryClass.getContainingFile().getVirtualFile();
@@ -19,16 +19,25 @@ package org.jetbrains.groovy.compiler.rt;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import groovy.lang.GroovyResourceLoader;
 
+/**
+ * Lookups are done from several compiler threads without locking: the map read from the arguments file is never
+ * modified, classes found while compiling go into a separate concurrent map.
+ */
 public class AstAwareResourceLoader implements GroovyResourceLoader {
-  final Map<String, File> myClass2File;
+  private final Map<String, File> myClass2File;
+  private final Map<String, File> myAddedClass2File = new ConcurrentHashMap<String, File>();
 
   AstAwareResourceLoader(Map<String, File> class2File) {
-    myClass2File = Collections.synchronizedMap(class2File);
+    myClass2File = class2File;
+  }
+
+  void addSourceFile(String className, File file) {
+    myAddedClass2File.put(className, file);
   }
 
   public URL loadGroovySource(String className) throws MalformedURLException {
@@ -48,6 +57,7 @@ public class AstAwareResourceLoader implements GroovyResourceLoader {
   }
 
   File getSourceFile(String className) {
-    return myClass2File.get(className);
+    File file = myAddedClass2File.get(className);
+    return file != null ? file : myClass2File.get(className);
   }
 }
@@ -34,12 +34,21 @@ import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author peter
  */
 public class DependentGroovycRunner {
-  static boolean runGroovyc(boolean forStubs, File argsFile) {
+  static boolean runGroovyc(boolean forStubs, File argsFile) throws IOException {
+    return runGroovyc(forStubs, argsFile, DependentGroovycRunner.class.getClassLoader());
+  }
+
+  /**
+   * @param parentLoader loader of the compilation classpath and compilation unit patchers
+   */
+  static boolean runGroovyc(boolean forStubs, File argsFile, ClassLoader parentLoader) throws IOException {
     CompilerConfiguration config = new CompilerConfiguration();
     config.setClasspath("");
     config.setOutput(new PrintWriter(System.err));
@@ -47,13 +56,26 @@ public class DependentGroovycRunner {
 
     List<CompilerMessage> compilerMessages = new ArrayList<CompilerMessage>();
     List<CompilationUnitPatcher> patchers = new ArrayList<CompilationUnitPatcher>();
-    List<File> srcFiles = new ArrayList<File>();
-    Map<String, File> class2File = new HashMap<String, File>();
 
-    String[] finalOutput = new String[1];
-    fillFromArgsFile(argsFile, config, patchers, compilerMessages, srcFiles, class2File, finalOutput);
+    GroovycArgsFile args = readArgsFile(argsFile);
+    if (args == null) {
+      return false;
+    }
+    if (args.getResultsFile() == null) {
+      System.err.println("Results file for groovy compiler is not specified");
+      return false;
+    }
+    List<File> srcFiles = args.getSourceFiles();
     if (srcFiles.isEmpty()) return true;
 
+    if (args.getEncoding() != null) {
+      config.setSourceEncoding(args.getEncoding());
+    }
+    if (args.getOutputPath() != null) {
+      config.setTargetDirectory(args.getOutputPath());
+    }
+    createPatchers(args.getPatchers(), patchers, compilerMessages, parentLoader);
+
     if (forStubs) {
       Map<String, Object> options = new HashMap<String, Object>();
       options.put("stubDir", config.getTargetDirectory());
@@ -62,13 +84,16 @@ public class DependentGroovycRunner {
     }
 
     System.out.println(GroovyRtConstants.PRESENTABLE_MESSAGE + "Groovyc: loading sources...");
-    final AstAwareResourceLoader resourceLoader = new AstAwareResourceLoader(class2File);
-    CompilationUnit unit = createCompilationUnit(forStubs, config, finalOutput[0], buildClassLoaderFor(config, resourceLoader));
+    final AstAwareResourceLoader resourceLoader = new AstAwareResourceLoader(args.getClass2File());
+    WellFormedClasses wellFormedClasses = new WellFormedClasses();
+    GroovycTelemetry telemetry = new GroovycTelemetry();
+    CompilationUnit unit = createCompilationUnit(forStubs, config, args.getFinalOutputPath(),
+                                                 buildClassLoaderFor(config, resourceLoader, parentLoader, wellFormedClasses), telemetry);
     unit.addPhaseOperation(new CompilationUnit.SourceUnitOperation() {
       public void call(SourceUnit source) throws CompilationFailedException {
         File file = new File(source.getName());
         for (ClassNode aClass : source.getAST().getClasses()) {
-          resourceLoader.myClass2File.put(aClass.getName(), file);
+          resourceLoader.addSourceFile(aClass.getName(), file);
         }
       }
     }, Phases.CONVERSION);
@@ -78,108 +103,71 @@ public class DependentGroovycRunner {
 
     System.out.println(GroovyRtConstants.PRESENTABLE_MESSAGE + "Groovyc: compiling...");
     List<GroovyCompilerWrapper.OutputItem> compiledFiles = new GroovyCompilerWrapper(compilerMessages, forStubs).compile(unit);
+    telemetry.finish();
     System.out.println(GroovyRtConstants.CLEAR_PRESENTABLE);
-
-    System.out.println();
-    reportCompiledItems(compiledFiles);
-
-    System.out.println();
-    if (compiledFiles.isEmpty()) {
-      reportNotCompiledItems(srcFiles);
+    if (wellFormedClasses.getChecks() > 0) {
+      compilerMessages.add(new CompilerMessage(GroovyCompilerMessageCategories.STATISTICS,
+                                               "Groovyc: " + wellFormedClasses.getHitRateDescription(), null, -1, -1));
     }
 
-    int errorCount = 0;
-    for (CompilerMessage message : compilerMessages) {
-      if (message.getCategory() == GroovyCompilerMessageCategories.ERROR) {
-        if (errorCount > 100) {
-          continue;
-        }
-        errorCount++;
-      }
-
-      printMessage(message);
-    }
-    return false;
-  }
-
-  private static String fillFromArgsFile(File argsFile, CompilerConfiguration compilerConfiguration, List<CompilationUnitPatcher> patchers, List<CompilerMessage> compilerMessages,
-                                         List<File> srcFiles, Map<String, File> class2File, String[] finalOutput) {
-    String moduleClasspath = null;
-
-    BufferedReader reader = null;
-    FileInputStream stream;
-
+    GroovycResultWriter results = new GroovycResultWriter(new File(args.getResultsFile()));
     try {
-      stream = new FileInputStream(argsFile);
-      reader = new BufferedReader(new InputStreamReader(stream));
-
-      String line;
-
-      while ((line = reader.readLine()) != null) {
-        if (!GroovyRtConstants.SRC_FILE.equals(line)) {
-          break;
-        }
+      reportCompiledItems(compiledFiles, results);
 
-        File file = new File(reader.readLine());
-        srcFiles.add(file);
+      if (compiledFiles.isEmpty()) {
+        reportNotCompiledItems(srcFiles, results);
       }
 
-      while (line != null) {
-        if (line.equals("class2src")) {
-          while (!GroovyRtConstants.END.equals(line = reader.readLine())) {
-            class2File.put(line, new File(reader.readLine()));
-          }
-        }
-        else if (line.startsWith(GroovyRtConstants.PATCHERS)) {
-          String s;
-          while (!GroovyRtConstants.END.equals(s = reader.readLine())) {
-            try {
-              CompilationUnitPatcher patcher = (CompilationUnitPatcher)Class.forName(s).newInstance();
-              patchers.add(patcher);
-            }
-            catch (InstantiationException e) {
-              addExceptionInfo(compilerMessages, e, "Couldn't instantiate " + s);
-            }
-            catch (IllegalAccessException e) {
-              addExceptionInfo(compilerMessages, e, "Couldn't instantiate " + s);
-            }
-            catch (ClassNotFoundException e) {
-              addExceptionInfo(compilerMessages, e, "Couldn't instantiate " + s);
-            }
+      int errorCount = 0;
+      for (CompilerMessage message : compilerMessages) {
+        if (message.getCategory() == GroovyCompilerMessageCategories.ERROR) {
+          if (errorCount > 100) {
+            continue;
           }
-        }
-        else if (line.startsWith(GroovyRtConstants.ENCODING)) {
-          compilerConfiguration.setSourceEncoding(reader.readLine());
-        }
-        else if (line.startsWith(GroovyRtConstants.OUTPUTPATH)) {
-          compilerConfiguration.setTargetDirectory(reader.readLine());
-        }
-        else if (line.startsWith(GroovyRtConstants.FINAL_OUTPUTPATH)) {
-          finalOutput[0] = reader.readLine();
+          errorCount++;
         }
 
-        line = reader.readLine();
+        results.writeMessage(message);
       }
-
+      telemetry.write(results);
     }
-    catch (FileNotFoundException e) {
-      e.printStackTrace();
+    finally {
+      results.close();
+    }
+    return false;
+  }
+
+  private static GroovycArgsFile readArgsFile(File argsFile) {
+    try {
+      return GroovycArgsFile.read(argsFile);
     }
     catch (IOException e) {
       e.printStackTrace();
+      return null;
     }
     finally {
+      // may fail on Windows while the file is still mapped, the IDE deletes it on exit then
+      argsFile.delete();
+    }
+  }
+
+  private static void createPatchers(List<String> patcherNames, List<CompilationUnitPatcher> patchers, List<CompilerMessage> compilerMessages,
+                                     ClassLoader patcherLoader) {
+    for (String s : patcherNames) {
       try {
-        reader.close();
+        CompilationUnitPatcher patcher = (CompilationUnitPatcher)Class.forName(s, true, patcherLoader).newInstance();
+        patchers.add(patcher);
+      }
+      catch (InstantiationException e) {
+        addExceptionInfo(compilerMessages, e, "Couldn't instantiate " + s);
       }
-      catch (IOException e) {
-        e.printStackTrace();
+      catch (IllegalAccessException e) {
+        addExceptionInfo(compilerMessages, e, "Couldn't instantiate " + s);
       }
-      finally {
-        argsFile.delete();
+      catch (ClassNotFoundException e) {
+        addExceptionInfo(compilerMessages, e, "Couldn't instantiate " + s);
       }
     }
-    return moduleClasspath;
   }
 
   private static void addSources(boolean forStubs, List<File> srcFiles, final CompilationUnit unit) {
@@ -211,47 +199,19 @@ public class DependentGroovycRunner {
     }
   }
 
-  private static void reportNotCompiledItems(Collection<File> toRecompile) {
+  private static void reportNotCompiledItems(Collection<File> toRecompile, GroovycResultWriter results) throws IOException {
     for (File file : toRecompile) {
-      System.out.print(GroovyRtConstants.TO_RECOMPILE_START);
-      System.out.print(file.getAbsolutePath());
-      System.out.print(GroovyRtConstants.TO_RECOMPILE_END);
-      System.out.println();
+      results.writeToRecompile(file.getAbsolutePath());
     }
   }
 
-  private static void reportCompiledItems(List<GroovyCompilerWrapper.OutputItem> compiledFiles) {
+  private static void reportCompiledItems(List<GroovyCompilerWrapper.OutputItem> compiledFiles, GroovycResultWriter results)
+    throws IOException {
     for (GroovyCompilerWrapper.OutputItem compiledFile : compiledFiles) {
-      /*
-      * output path
-      * source file
-      * output root directory
-      */
-      System.out.print(GroovyRtConstants.COMPILED_START);
-      System.out.print(compiledFile.getOutputPath());
-      System.out.print(GroovyRtConstants.SEPARATOR);
-      System.out.print(compiledFile.getSourceFile());
-      System.out.print(GroovyRtConstants.COMPILED_END);
-      System.out.println();
+      results.writeCompiled(compiledFile.getOutputPath(), compiledFile.getSourceFile());
     }
   }
 
-  private static void printMessage(CompilerMessage message) {
-    System.out.print(GroovyRtConstants.MESSAGES_START);
-    System.out.print(message.getCategory());
-    System.out.print(GroovyRtConstants.SEPARATOR);
-    System.out.print(message.getMessage());
-    System.out.print(GroovyRtConstants.SEPARATOR);
-    System.out.print(message.getUrl());
-    System.out.print(GroovyRtConstants.SEPARATOR);
-    System.out.print(message.getLineNum());
-    System.out.print(GroovyRtConstants.SEPARATOR);
-    System.out.print(message.getColumnNum());
-    System.out.print(GroovyRtConstants.SEPARATOR);
-    System.out.print(GroovyRtConstants.MESSAGES_END);
-    System.out.println();
-  }
-
   private static void addExceptionInfo(List<CompilerMessage> compilerMessages, Throwable e, String message) {
     StringWriter writer = new StringWriter();
     e.printStackTrace(new PrintWriter(writer));
@@ -260,7 +220,8 @@ public class DependentGroovycRunner {
 
   private static CompilationUnit createCompilationUnit(boolean forStubs,
                                                        final CompilerConfiguration config,
-                                                       final String finalOutput, final GroovyClassLoader classLoader) {
+                                                       final String finalOutput, final GroovyClassLoader classLoader,
+                                                       final GroovycTelemetry telemetry) {
 
     final GroovyClassLoader transformLoader = new GroovyClassLoader(classLoader) {
       public Enumeration<URL> getResources(String name) throws IOException {
@@ -287,7 +248,7 @@ public class DependentGroovycRunner {
 
     try {
       if (forStubs) {
-        return createStubGenerator(config, classLoader, transformLoader);
+        return createStubGenerator(config, classLoader, transformLoader, telemetry);
       }
     }
     catch (NoClassDefFoundError ignore) { // older groovy distributions just don't have stub generation capability
@@ -300,9 +261,27 @@ public class DependentGroovycRunner {
         public void gotoPhase(int phase) throws CompilationFailedException {
           super.gotoPhase(phase);
           if (phase <= Phases.ALL) {
+            telemetry.phaseStarted(getPhaseDescription());
             System.out.println(GroovyRtConstants.PRESENTABLE_MESSAGE + "Groovyc: " + getPhaseDescription());
           }
         }
+
+        // operations are added from the super constructor too, the captured telemetry is assigned before it runs
+        public void addPhaseOperation(ISourceUnitOperation op, int phase) {
+          super.addPhaseOperation(telemetry.wrap(op), phase);
+        }
+
+        public void addNewPhaseOperation(ISourceUnitOperation op, int phase) {
+          super.addNewPhaseOperation(telemetry.wrap(op), phase);
+        }
+
+        public void addPhaseOperation(IPrimaryClassNodeOperation op, int phase) {
+          super.addPhaseOperation(telemetry.wrap(op), phase);
+        }
+
+        public void addFirstPhaseOperation(IPrimaryClassNodeOperation op, int phase) {
+          super.addFirstPhaseOperation(telemetry.wrap(op), phase);
+        }
       };
     }
     catch (NoSuchMethodError e) {
@@ -312,6 +291,7 @@ public class DependentGroovycRunner {
         public void gotoPhase(int phase) throws CompilationFailedException {
           super.gotoPhase(phase);
           if (phase <= Phases.ALL) {
+            telemetry.phaseStarted(getPhaseDescription());
             System.out.println(GroovyRtConstants.PRESENTABLE_MESSAGE + "Groovyc: " + getPhaseDescription());
           }
         }
@@ -320,7 +300,8 @@ public class DependentGroovycRunner {
     return unit;
   }
 
-  private static CompilationUnit createStubGenerator(final CompilerConfiguration config, final GroovyClassLoader classLoader, final GroovyClassLoader transformLoader) {
+  private static CompilationUnit createStubGenerator(final CompilerConfiguration config, final GroovyClassLoader classLoader, final GroovyClassLoader transformLoader,
+                                                     final GroovycTelemetry telemetry) {
     JavaAwareCompilationUnit unit = new JavaAwareCompilationUnit(config, classLoader) {
       private boolean annoRemovedAdded;
 
@@ -395,6 +376,9 @@ public class DependentGroovycRunner {
         }
 
         super.gotoPhase(phase);
+        if (phase <= Phases.ALL) {
+          telemetry.phaseStarted(getPhaseDescription());
+        }
       }
 
     };
@@ -402,10 +386,13 @@ public class DependentGroovycRunner {
     return unit;
   }
 
-  static GroovyClassLoader buildClassLoaderFor(final CompilerConfiguration compilerConfiguration, final AstAwareResourceLoader resourceLoader) {
+  static GroovyClassLoader buildClassLoaderFor(final CompilerConfiguration compilerConfiguration,
+                                               final AstAwareResourceLoader resourceLoader,
+                                               final ClassLoader parentLoader,
+                                               final WellFormedClasses wellFormedClasses) {
     GroovyClassLoader classLoader = AccessController.doPrivileged(new PrivilegedAction<GroovyClassLoader>() {
       public GroovyClassLoader run() {
-        return new GroovyClassLoader(getClass().getClassLoader(), compilerConfiguration) {
+        return new GroovyClassLoader(parentLoader, compilerConfiguration) {
           public Class loadClass(String name, boolean lookupScriptFiles, boolean preferClassOverScript)
             throws ClassNotFoundException, CompilationFailedException {
             Class aClass;
@@ -419,7 +406,10 @@ public class DependentGroovycRunner {
               throw new RuntimeException("Problem loading class " + name, e);
             }
 
-            ensureWellFormed(aClass, new HashSet<Class>());
+            // the classes checked on the way are well-formed only if the whole check succeeds, a cycle may still fail later
+            Set<Class> visited = new HashSet<Class>();
+            ensureWellFormed(aClass, visited);
+            wellFormedClasses.addAll(visited);
 
             return aClass;
           }
@@ -449,7 +439,7 @@ public class DependentGroovycRunner {
 
           private void ensureWellFormed(Class aClass, Set<Class> visited) throws ClassNotFoundException {
             String name = aClass.getName();
-            if (resourceLoader.getSourceFile(name) != null && visited.add(aClass)) {
+            if (resourceLoader.getSourceFile(name) != null && !wellFormedClasses.isKnown(aClass) && visited.add(aClass)) {
               try {
                 for (Method method : aClass.getDeclaredMethods()) {
                   ensureWellFormed(method.getGenericReturnType(), visited);
@@ -502,4 +492,39 @@ public class DependentGroovycRunner {
     classLoader.setResourceLoader(resourceLoader);
     return classLoader;
   }
+
+  /**
+   * Classes with sources whose members were already resolved by the class loader of a groovyc run, so that reflection
+   * over them isn't repeated every time they are loaded again, e.g. by AST transformations.
+   */
+  static class WellFormedClasses {
+    private final Map<Class, Boolean> myClasses = new ConcurrentHashMap<Class, Boolean>();
+    private final AtomicInteger myChecks = new AtomicInteger();
+    private final AtomicInteger myHits = new AtomicInteger();
+
+    boolean isKnown(Class aClass) {
+      myChecks.incrementAndGet();
+      if (myClasses.containsKey(aClass)) {
+        myHits.incrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+    void addAll(Collection<Class> classes) {
+      for (Class aClass : classes) {
+        myClasses.put(aClass, Boolean.TRUE);
+      }
+    }
+
+    int getChecks() {
+      return myChecks.get();
+    }
+
+    String getHitRateDescription() {
+      int checks = myChecks.get();
+      int hits = myHits.get();
+      return "class checks cached: " + hits + " of " + checks + " (" + (checks == 0 ? 0 : hits * 100 / checks) + "%)";
+    }
+  }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.groovy.compiler.rt;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Arguments of a groovyc run, written by the IDE and read by groovyc.
+ * <p>
+ * The file is binary. Directories and source paths are stored once in tables and referenced by index. Class names of the
+ * class-to-source map are sorted and stored as the length of the prefix shared with the previous name plus the rest:
+ * <pre>
+ * magic, version
+ * directories: count, names with their trailing separator
+ * sources: count, (directory index, file name)*
+ * sources to compile: count, source indices
+ * class to source: count, (shared prefix length, name suffix, source index)*
+ * patchers: count, class names
+ * encoding, output path, final output path, results file
+ * </pre>
+ * Strings are written as a byte length (-1 for {@code null}) followed by UTF-8 bytes, numbers as 4-byte ints.
+ */
+public class GroovycArgsFile {
+  private static final int MAGIC = 0x47726F6F;
+  private static final int VERSION = 2;
+
+  private final List<File> mySourceFiles;
+  private final Map<String, File> myClass2File;
+  private final List<String> myPatchers;
+  private final String myEncoding;
+  private final String myOutputPath;
+  private final String myFinalOutputPath;
+  private final String myResultsFile;
+
+  private GroovycArgsFile(List<File> sourceFiles,
+                          Map<String, File> class2File,
+                          List<String> patchers,
+                          String encoding,
+                          String outputPath,
+                          String finalOutputPath,
+                          String resultsFile) {
+    mySourceFiles = sourceFiles;
+    myClass2File = class2File;
+    myPatchers = patchers;
+    myEncoding = encoding;
+    myOutputPath = outputPath;
+    myFinalOutputPath = finalOutputPath;
+    myResultsFile = resultsFile;
+  }
+
+  public List<File> getSourceFiles() {
+    return mySourceFiles;
+  }
+
+  public Map<String, File> getClass2File() {
+    return myClass2File;
+  }
+
+  public List<String> getPatchers() {
+    return myPatchers;
+  }
+
+  public String getEncoding() {
+    return myEncoding;
+  }
+
+  public String getOutputPath() {
+    return myOutputPath;
+  }
+
+  public String getFinalOutputPath() {
+    return myFinalOutputPath;
+  }
+
+  public String getResultsFile() {
+    return myResultsFile;
+  }
+
+  public static void write(File file,
+                           Collection<String> sourcesToCompile,
+                           Map<String, String> class2Src,
+                           List<String> patchers,
+                           String encoding,
+                           String outputPath,
+                           String finalOutputPath,
+                           String resultsFile) throws IOException {
+    Map<String, Integer> directories = new LinkedHashMap<String, Integer>();
+    Map<String, Integer> sources = new LinkedHashMap<String, Integer>();
+    List<Integer> sourceDirectories = new ArrayList<Integer>();
+    List<String> sourceNames = new ArrayList<String>();
+    for (String path : sourcesToCompile) {
+      addSource(path, directories, sources, sourceDirectories, sourceNames);
+    }
+    for (String path : class2Src.values()) {
+      addSource(path, directories, sources, sourceDirectories, sourceNames);
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      out.writeInt(directories.size());
+      for (String directory : directories.keySet()) {
+        GroovycResultWriter.writeString(out, directory);
+      }
+
+      out.writeInt(sourceNames.size());
+      for (int i = 0; i < sourceNames.size(); i++) {
+        out.writeInt(sourceDirectories.get(i));
+        GroovycResultWriter.writeString(out, sourceNames.get(i));
+      }
+
+      out.writeInt(sourcesToCompile.size());
+      for (String path : sourcesToCompile) {
+        out.writeInt(sources.get(path));
+      }
+
+      out.writeInt(class2Src.size());
+      String previous = "";
+      for (String className : new TreeSet<String>(class2Src.keySet())) {
+        int prefix = commonPrefixLength(previous, className);
+        out.writeInt(prefix);
+        GroovycResultWriter.writeString(out, className.substring(prefix));
+        out.writeInt(sources.get(class2Src.get(className)));
+        previous = className;
+      }
+
+      out.writeInt(patchers.size());
+      for (String patcher : patchers) {
+        GroovycResultWriter.writeString(out, patcher);
+      }
+
+      GroovycResultWriter.writeString(out, encoding);
+      GroovycResultWriter.writeString(out, outputPath);
+      GroovycResultWriter.writeString(out, finalOutputPath);
+      GroovycResultWriter.writeString(out, resultsFile);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  private static void addSource(String path,
+                                Map<String, Integer> directories,
+                                Map<String, Integer> sources,
+                                List<Integer> sourceDirectories,
+                                List<String> sourceNames) {
+    if (sources.containsKey(path)) {
+      return;
+    }
+    // the directory keeps its trailing separator, so that files of the root directory read back as absolute paths
+    int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    String directory = path.substring(0, separator + 1);
+    Integer directoryIndex = directories.get(directory);
+    if (directoryIndex == null) {
+      directoryIndex = directories.size();
+      directories.put(directory, directoryIndex);
+    }
+    sources.put(path, sourceNames.size());
+    sourceDirectories.add(directoryIndex);
+    sourceNames.add(path.substring(separator + 1));
+  }
+
+  private static int commonPrefixLength(String s1, String s2) {
+    int max = Math.min(s1.length(), s2.length());
+    int i = 0;
+    while (i < max && s1.charAt(i) == s2.charAt(i)) {
+      i++;
+    }
+    // don't split a surrogate pair, halves of it can't be encoded separately
+    return i > 0 && Character.isHighSurrogate(s2.charAt(i - 1)) ? i - 1 : i;
+  }
+
+  /**
+   * Reads the file through a memory-mapped buffer. The class-to-source map is a plain map which must not be modified.
+   */
+  public static GroovycArgsFile read(File file) throws IOException {
+    FileInputStream stream = new FileInputStream(file);
+    try {
+      FileChannel channel = stream.getChannel();
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Unsupported groovyc arguments file: " + file);
+      }
+
+      String[] directories = new String[buffer.getInt()];
+      for (int i = 0; i < directories.length; i++) {
+        directories[i] = readString(buffer);
+      }
+
+      File[] sources = new File[buffer.getInt()];
+      for (int i = 0; i < sources.length; i++) {
+        String directory = directories[buffer.getInt()];
+        String name = readString(buffer);
+        sources[i] = new File(directory + name);
+      }
+
+      int toCompileCount = buffer.getInt();
+      List<File> sourceFiles = new ArrayList<File>(toCompileCount);
+      for (int i = 0; i < toCompileCount; i++) {
+        sourceFiles.add(sources[buffer.getInt()]);
+      }
+
+      int classCount = buffer.getInt();
+      Map<String, File> class2File = new HashMap<String, File>(Math.max(16, classCount * 4 / 3 + 1));
+      String previous = "";
+      for (int i = 0; i < classCount; i++) {
+        int prefix = buffer.getInt();
+        String className = previous.substring(0, prefix) + readString(buffer);
+        class2File.put(className, sources[buffer.getInt()]);
+        previous = className;
+      }
+
+      int patcherCount = buffer.getInt();
+      List<String> patchers = new ArrayList<String>(patcherCount);
+      for (int i = 0; i < patcherCount; i++) {
+        patchers.add(readString(buffer));
+      }
+
+      return new GroovycArgsFile(sourceFiles, class2File, patchers,
+                                 readString(buffer), readString(buffer), readString(buffer), readString(buffer));
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) throws UnsupportedEncodingException {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, "UTF-8");
+  }
+}
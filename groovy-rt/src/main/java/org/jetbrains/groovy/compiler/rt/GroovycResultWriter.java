@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.groovy.compiler.rt;
+
+import java.io.*;
+
+/**
+ * Writes groovyc results into the results file named in the arguments file, separately from the compiler's stdout.
+ * <p>
+ * The file is a sequence of records, each one a kind byte followed by its fields:
+ * <ul>
+ * <li>{@link #COMPILED}: output path, source path</li>
+ * <li>{@link #TO_RECOMPILE}: source path</li>
+ * <li>{@link #MESSAGE}: category, message, url, line, column</li>
+ * <li>{@link #TELEMETRY}: kind ({@link #TELEMETRY_PHASE}, {@link #TELEMETRY_OPERATION} or {@link #TELEMETRY_FILE}), name, nanoseconds, allocated bytes, live heap bytes</li>
+ * </ul>
+ * Strings are written as a byte length (-1 for {@code null}) followed by UTF-8 bytes, numbers as 4-byte ints, telemetry
+ * measurements as 8-byte longs (-1 if not measured).
+ */
+public class GroovycResultWriter {
+  public static final byte COMPILED = 1;
+  public static final byte TO_RECOMPILE = 2;
+  public static final byte MESSAGE = 3;
+  public static final byte TELEMETRY = 4;
+
+  public static final String TELEMETRY_PHASE = "phase";
+  public static final String TELEMETRY_OPERATION = "operation";
+  public static final String TELEMETRY_FILE = "file";
+
+  private final DataOutputStream myOut;
+
+  GroovycResultWriter(File file) throws IOException {
+    myOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+  }
+
+  void writeCompiled(String outputPath, String sourceFile) throws IOException {
+    myOut.writeByte(COMPILED);
+    writeString(myOut, outputPath);
+    writeString(myOut, sourceFile);
+  }
+
+  void writeToRecompile(String sourceFile) throws IOException {
+    myOut.writeByte(TO_RECOMPILE);
+    writeString(myOut, sourceFile);
+  }
+
+  void writeMessage(CompilerMessage message) throws IOException {
+    myOut.writeByte(MESSAGE);
+    writeString(myOut, message.getCategory());
+    writeString(myOut, message.getMessage());
+    writeString(myOut, message.getUrl());
+    myOut.writeInt(message.getLineNum());
+    myOut.writeInt(message.getColumnNum());
+  }
+
+  void writeTelemetry(String kind, String name, long nanos, long allocatedBytes, long liveHeapBytes) throws IOException {
+    myOut.writeByte(TELEMETRY);
+    writeString(myOut, kind);
+    writeString(myOut, name);
+    myOut.writeLong(nanos);
+    myOut.writeLong(allocatedBytes);
+    myOut.writeLong(liveHeapBytes);
+  }
+
+  void close() throws IOException {
+    myOut.close();
+  }
+
+  static void writeString(DataOutput out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  public static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+}
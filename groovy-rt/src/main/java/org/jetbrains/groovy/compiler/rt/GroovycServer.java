@@ -0,0 +1,257 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.groovy.compiler.rt;
+
+import java.io.*;
+import java.net.*;
+import java.security.SecureRandom;
+import java.util.*;
+
+/**
+ * Long-lived groovyc process which runs compile requests one by one, so that JVM startup, loading of Groovy itself and
+ * of the libraries on the compilation classpath are paid once per build session instead of once per module.
+ * <p>
+ * The server listens on a loopback port and prints {@link GroovyRtConstants#SERVER_STARTED} followed by the port and a
+ * random token, which each request has to start with. A request is: token, command ({@code stubs}, {@code groovyc} or
+ * {@link #SHUTDOWN}), arguments file, invokedynamic flag and the compilation classpath. While it runs, the output
+ * which {@link GroovycRunner} would print is sent back as {@link #STDOUT} and {@link #STDERR} frames, followed by an
+ * {@link #EXIT} frame with the exit code.
+ * <p>
+ * The leading jars of the compilation classpath are loaded by a class loader cached for the same unchanged jars; the rest
+ * of it, from the first directory on (module outputs change between builds), gets a fresh loader on every request. The
+ * cached loader is the parent, so the classes are found in the order of the classpath, as by a groovyc process of its own.
+ *
+ * @noinspection UseOfSystemOutOrSystemErr,CallToPrintStackTrace
+ */
+public class GroovycServer {
+  public static final String SHUTDOWN = "shutdown";
+  public static final byte STDOUT = 1;
+  public static final byte STDERR = 2;
+  public static final byte EXIT = 3;
+
+  private static final int IDLE_TIMEOUT = 30 * 60 * 1000;
+  /**
+   * How long a client may stay silent while sending its request
+   */
+  private static final int REQUEST_TIMEOUT = 60 * 1000;
+  private static final int MAX_CACHED_LOADERS = 4;
+
+  private final Map<List<String>, URLClassLoader> myLibraryLoaders = new LinkedHashMap<List<String>, URLClassLoader>(8, 0.75f, true) {
+    protected boolean removeEldestEntry(Map.Entry<List<String>, URLClassLoader> eldest) {
+      if (size() > MAX_CACHED_LOADERS) {
+        close(eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  };
+
+  private GroovycServer() {
+  }
+
+  public static void main(String[] args) {
+    try {
+      Class.forName("org.codehaus.groovy.control.CompilationUnit");
+    }
+    catch (Throwable e) {
+      System.err.println(GroovyRtConstants.NO_GROOVY);
+      System.exit(1);
+    }
+
+    try {
+      new GroovycServer().serve();
+    }
+    catch (Throwable e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  private void serve() throws IOException {
+    ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    serverSocket.setSoTimeout(IDLE_TIMEOUT);
+    String token = Long.toHexString(new SecureRandom().nextLong());
+
+    System.out.println(GroovyRtConstants.SERVER_STARTED + serverSocket.getLocalPort() + " " + token);
+    System.out.flush();
+
+    try {
+      while (true) {
+        Socket socket;
+        try {
+          socket = serverSocket.accept();
+        }
+        catch (SocketTimeoutException e) {
+          return;
+        }
+
+        try {
+          socket.setSoTimeout(REQUEST_TIMEOUT);
+          if (!handle(socket, token)) {
+            return;
+          }
+        }
+        catch (IOException e) {
+          // a stalled or disconnected client, the next one may be served
+          e.printStackTrace();
+        }
+        finally {
+          socket.close();
+        }
+      }
+    }
+    finally {
+      serverSocket.close();
+    }
+  }
+
+  /**
+   * @return whether the server should accept further requests
+   */
+  private boolean handle(Socket socket, String token) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    if (!token.equals(in.readUTF())) {
+      return true;
+    }
+
+    String command = in.readUTF();
+    if (SHUTDOWN.equals(command)) {
+      return false;
+    }
+    File argsFile = new File(in.readUTF());
+    boolean indy = in.readBoolean();
+    int classpathSize = in.readInt();
+    List<String> classpath = new ArrayList<String>(classpathSize);
+    for (int i = 0; i < classpathSize; i++) {
+      classpath.add(in.readUTF());
+    }
+
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    PrintStream oldOut = System.out;
+    PrintStream oldErr = System.err;
+    ClassLoader oldContextLoader = Thread.currentThread().getContextClassLoader();
+    int exitCode = 0;
+    boolean outOfMemory = false;
+    URLClassLoader requestLoader = null;
+    try {
+      System.setOut(new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, STDOUT)), true, "UTF-8"));
+      System.setErr(new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, STDERR)), true, "UTF-8"));
+      if (indy) {
+        System.setProperty("groovy.target.indy", "true");
+      }
+      else {
+        System.clearProperty("groovy.target.indy");
+      }
+
+      requestLoader = createRequestLoader(classpath);
+      Thread.currentThread().setContextClassLoader(requestLoader);
+      DependentGroovycRunner.runGroovyc("stubs".equals(command), argsFile, requestLoader);
+    }
+    catch (OutOfMemoryError e) {
+      // cached loaders may hold most of the heap, stop and let the IDE start a fresh process
+      outOfMemory = true;
+      e.printStackTrace();
+      exitCode = 1;
+    }
+    catch (Throwable e) {
+      e.printStackTrace();
+      exitCode = 1;
+    }
+    finally {
+      System.out.flush();
+      System.err.flush();
+      System.setOut(oldOut);
+      System.setErr(oldErr);
+      Thread.currentThread().setContextClassLoader(oldContextLoader);
+      close(requestLoader);
+    }
+
+    synchronized (out) {
+      out.writeByte(EXIT);
+      out.writeInt(exitCode);
+      out.flush();
+    }
+    return !outOfMemory;
+  }
+
+  private URLClassLoader createRequestLoader(List<String> classpath) throws MalformedURLException {
+    List<String> libraryKey = new ArrayList<String>();
+    List<URL> libraries = new ArrayList<URL>();
+    List<URL> rest = new ArrayList<URL>();
+    for (String path : classpath) {
+      File file = new File(path);
+      if (rest.isEmpty() && file.isFile()) {
+        libraryKey.add(path + ":" + file.length() + ":" + file.lastModified());
+        libraries.add(file.toURI().toURL());
+      }
+      else {
+        rest.add(file.toURI().toURL());
+      }
+    }
+
+    URLClassLoader libraryLoader = myLibraryLoaders.get(libraryKey);
+    if (libraryLoader == null) {
+      libraryLoader = new URLClassLoader(libraries.toArray(new URL[libraries.size()]), GroovycServer.class.getClassLoader());
+      myLibraryLoaders.put(libraryKey, libraryLoader);
+    }
+    return new URLClassLoader(rest.toArray(new URL[rest.size()]), libraryLoader);
+  }
+
+  private static void close(ClassLoader loader) {
+    if (loader instanceof Closeable) {
+      try {
+        ((Closeable)loader).close();
+      }
+      catch (IOException ignored) {
+      }
+    }
+  }
+
+  /**
+   * Wraps everything written into frames of the given kind
+   */
+  private static class FrameOutputStream extends OutputStream {
+    private final DataOutputStream myOut;
+    private final byte myKind;
+
+    FrameOutputStream(DataOutputStream out, byte kind) {
+      myOut = out;
+      myKind = kind;
+    }
+
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte)b}, 0, 1);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return;
+      }
+      synchronized (myOut) {
+        myOut.writeByte(myKind);
+        myOut.writeInt(len);
+        myOut.write(b, off, len);
+      }
+    }
+
+    public void flush() throws IOException {
+      synchronized (myOut) {
+        myOut.flush();
+      }
+    }
+  }
+}
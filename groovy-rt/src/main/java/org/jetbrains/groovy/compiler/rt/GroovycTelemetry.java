@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.groovy.compiler.rt;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.SourceUnit;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Time, allocation and heap measurements of a groovyc run, reported to the IDE through {@link GroovycResultWriter}.
+ * <p>
+ * Phases are measured from one {@code gotoPhase} to the next. Phase operations are timed by the class which added
+ * them, per phase; the operations running AST transformations are all added by {@code ASTTransformationVisitor} and
+ * are reported together. The time of the operations run for a source unit is also summed per source file.
+ */
+class GroovycTelemetry {
+  private static final String AST_TRANSFORMATIONS = "AST transformations";
+
+  private final List<String> myPhases = new ArrayList<String>();
+  private final Map<String, long[]> myPhaseValues = new LinkedHashMap<String, long[]>();
+  private final Map<String, long[]> myOperations = new LinkedHashMap<String, long[]>();
+  private final Map<String, long[]> myFiles = new LinkedHashMap<String, long[]>();
+  private final Method myAllocatedBytesMethod = findAllocatedBytesMethod();
+
+  private String myPhase;
+  private long myPhaseStart;
+  private long myPhaseAllocatedStart;
+
+  synchronized void phaseStarted(String description) {
+    phaseFinished();
+    myPhase = description;
+    myPhaseStart = System.nanoTime();
+    myPhaseAllocatedStart = getAllocatedBytes();
+  }
+
+  synchronized void finish() {
+    phaseFinished();
+    myPhase = null;
+  }
+
+  private void phaseFinished() {
+    if (myPhase == null) {
+      return;
+    }
+    long allocated = getAllocatedBytes();
+    Runtime runtime = Runtime.getRuntime();
+    long[] values = myPhaseValues.get(myPhase);
+    if (values == null) {
+      myPhases.add(myPhase);
+      values = new long[]{0, myAllocatedBytesMethod == null ? -1 : 0, 0};
+      myPhaseValues.put(myPhase, values);
+    }
+    values[0] += System.nanoTime() - myPhaseStart;
+    if (values[1] >= 0 && allocated >= 0 && myPhaseAllocatedStart >= 0) {
+      values[1] += allocated - myPhaseAllocatedStart;
+    }
+    values[2] = runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private synchronized void operationFinished(String owner, SourceUnit source, long nanos) {
+    add(myOperations, myPhase == null ? owner : myPhase + " / " + owner, nanos);
+    if (source != null) {
+      add(myFiles, source.getName(), nanos);
+    }
+  }
+
+  private static void add(Map<String, long[]> map, String key, long nanos) {
+    long[] value = map.get(key);
+    if (value == null) {
+      map.put(key, new long[]{nanos});
+    }
+    else {
+      value[0] += nanos;
+    }
+  }
+
+  CompilationUnit.ISourceUnitOperation wrap(final CompilationUnit.ISourceUnitOperation op) {
+    final String owner = getOwner(op);
+    return new CompilationUnit.ISourceUnitOperation() {
+      public void call(SourceUnit source) throws CompilationFailedException {
+        long start = System.nanoTime();
+        try {
+          op.call(source);
+        }
+        finally {
+          operationFinished(owner, source, System.nanoTime() - start);
+        }
+      }
+    };
+  }
+
+  CompilationUnit.IPrimaryClassNodeOperation wrap(final CompilationUnit.IPrimaryClassNodeOperation op) {
+    final String owner = getOwner(op);
+    return new CompilationUnit.IPrimaryClassNodeOperation() {
+      public void call(SourceUnit source, GeneratorContext context, ClassNode classNode) throws CompilationFailedException {
+        long start = System.nanoTime();
+        try {
+          op.call(source, context, classNode);
+        }
+        finally {
+          operationFinished(owner, source, System.nanoTime() - start);
+        }
+      }
+
+      public boolean needSortedInput() {
+        return op.needSortedInput();
+      }
+    };
+  }
+
+  private static String getOwner(Object op) {
+    String name = op.getClass().getName();
+    int dollar = name.indexOf('$');
+    if (dollar > 0) {
+      name = name.substring(0, dollar);
+    }
+    name = name.substring(name.lastIndexOf('.') + 1);
+    return "ASTTransformationVisitor".equals(name) ? AST_TRANSFORMATIONS : name;
+  }
+
+  synchronized void write(GroovycResultWriter results) throws IOException {
+    for (String phase : myPhases) {
+      long[] values = myPhaseValues.get(phase);
+      results.writeTelemetry(GroovycResultWriter.TELEMETRY_PHASE, phase, values[0], values[1], values[2]);
+    }
+    for (Map.Entry<String, long[]> entry : myOperations.entrySet()) {
+      results.writeTelemetry(GroovycResultWriter.TELEMETRY_OPERATION, entry.getKey(), entry.getValue()[0], -1, -1);
+    }
+    for (Map.Entry<String, long[]> entry : myFiles.entrySet()) {
+      results.writeTelemetry(GroovycResultWriter.TELEMETRY_FILE, entry.getKey(), entry.getValue()[0], -1, -1);
+    }
+  }
+
+  /**
+   * @return bytes allocated by the compiling thread so far, or -1 if the JVM can't tell
+   */
+  private long getAllocatedBytes() {
+    if (myAllocatedBytesMethod == null) {
+      return -1;
+    }
+    try {
+      return ((Long)myAllocatedBytesMethod.invoke(ManagementFactory.getThreadMXBean(), Thread.currentThread().getId())).longValue();
+    }
+    catch (Exception e) {
+      return -1;
+    }
+  }
+
+  private static Method findAllocatedBytesMethod() {
+    try {
+      return Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+    }
+    catch (Throwable e) {
+      return null;
+    }
+  }
+}
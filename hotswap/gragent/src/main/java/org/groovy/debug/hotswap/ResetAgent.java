@@ -5,6 +5,7 @@ import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Field;
 import java.security.ProtectionDomain;
+import java.util.concurrent.atomic.AtomicLong;
 
 import consulo.internal.org.objectweb.asm.ClassReader;
 import consulo.internal.org.objectweb.asm.ClassVisitor;
@@ -18,6 +19,11 @@ import consulo.internal.org.objectweb.asm.Type;
  * Inspired by GroovyEclipse hot-swap hack (http://jira.codehaus.org/browse/GRECLIPSE-588)
  * Removes all timestamp-related Groovy fields on class loading
  * Also clears Groovy's call site cache
+ * <p>
+ * Classes of the bootstrap and platform loaders, JDK packages and reflection accessors are skipped. For the rest, the
+ * constant pool is scanned for a UTF8 entry starting with the timestamp field prefix, and only classes which have one
+ * are rewritten. Counts of scanned and rewritten classes are available from {@link #getScannedClassCount()} and
+ * {@link #getRewrittenClassCount()}, and are printed at exit if the agent is started with the {@code stats} option.
  *
  * @author Andy Clement
  * @author peter
@@ -34,7 +40,13 @@ public class ResetAgent {
     }
   }
 
+  private static final String[] JDK_PACKAGES = {"java/", "javax/", "jdk/", "sun/", "com/sun/"};
+
+  private static final AtomicLong ourScannedClasses = new AtomicLong();
+  private static final AtomicLong ourRewrittenClasses = new AtomicLong();
+
   private static boolean initialized;
+  private static ClassLoader ourPlatformLoader;
 
   public static void premain(String options, Instrumentation inst) {
     // Handle duplicate agents
@@ -42,6 +54,18 @@ public class ResetAgent {
       return;
     }
     initialized = true;
+    try {
+      ourPlatformLoader = ClassLoader.getSystemClassLoader().getParent();
+    }
+    catch (Throwable ignored) {
+    }
+    if ("stats".equals(options)) {
+      Runtime.getRuntime().addShutdownHook(new Thread("Groovy ResetAgent statistics") {
+        public void run() {
+          System.err.println("Groovy ResetAgent: " + getScannedClassCount() + " classes scanned, " + getRewrittenClassCount() + " rewritten");
+        }
+      });
+    }
     inst.addTransformer(new ClassFileTransformer() {
       public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
         if (classBeingRedefined != null) {
@@ -52,33 +76,41 @@ public class ResetAgent {
           } catch (Throwable ignored) {
           }
         }
+        if (shouldSkip(loader, className)) {
+          return null;
+        }
         return removeTimestampField(classfileBuffer);
       }
 
     });
   }
 
-  private static boolean matches(byte[] array, byte[] subArray, int start) {
-    for (int i = 0; i < subArray.length; i++) {
-      if (array[start + i] != subArray[i]) {
-        return false;
-      }
-    }
-    return true;
+  public static long getScannedClassCount() {
+    return ourScannedClasses.get();
   }
 
-  private static boolean containsSubArray(byte[] array, byte[] subArray) {
-    int maxLength = array.length - subArray.length;
-    for (int i = 0; i < maxLength; i++) {
-      if (matches(array, subArray, i)) {
-        return true;
+  public static long getRewrittenClassCount() {
+    return ourRewrittenClasses.get();
+  }
+
+  private static boolean shouldSkip(ClassLoader loader, String className) {
+    if (loader == null || loader == ourPlatformLoader) {
+      return true;
+    }
+    if (className != null) {
+      for (String jdkPackage : JDK_PACKAGES) {
+        if (className.startsWith(jdkPackage)) {
+          return true;
+        }
       }
     }
-    return false;
+    // generated accessors for reflection, never compiled by Groovy
+    return loader.getClass().getName().endsWith(".reflect.DelegatingClassLoader");
   }
 
   private static byte[] removeTimestampField(byte[] newBytes) {
-    if (!containsSubArray(newBytes, timeStampFieldStartBytes)) {
+    ourScannedClasses.incrementAndGet();
+    if (!hasTimestampConstant(newBytes)) {
       return null;
     }
 
@@ -86,11 +118,79 @@ public class ResetAgent {
     ClassWriter writer = new ClassWriter(0);
     new ClassReader(newBytes).accept(new TimestampFieldRemover(writer, changed), 0);
     if (changed[0]) {
+      ourRewrittenClasses.incrementAndGet();
       return writer.toByteArray();
     }
     return null;
   }
 
+  /**
+   * @return whether the constant pool of the class file has a UTF8 entry starting with the timestamp field prefix
+   */
+  static boolean hasTimestampConstant(byte[] bytes) {
+    try {
+      int count = readUnsignedShort(bytes, 8);
+      int offset = 10;
+      for (int i = 1; i < count; i++) {
+        int tag = bytes[offset] & 0xFF;
+        switch (tag) {
+          case 1: // Utf8
+            int length = readUnsignedShort(bytes, offset + 1);
+            if (length >= timeStampFieldStartBytes.length && startsWithTimestamp(bytes, offset + 3)) {
+              return true;
+            }
+            offset += 3 + length;
+            break;
+          case 7: // Class
+          case 8: // String
+          case 16: // MethodType
+          case 19: // Module
+          case 20: // Package
+            offset += 3;
+            break;
+          case 15: // MethodHandle
+            offset += 4;
+            break;
+          case 3: // Integer
+          case 4: // Float
+          case 9: // Fieldref
+          case 10: // Methodref
+          case 11: // InterfaceMethodref
+          case 12: // NameAndType
+          case 17: // Dynamic
+          case 18: // InvokeDynamic
+            offset += 5;
+            break;
+          case 5: // Long
+          case 6: // Double
+            offset += 9;
+            i++;
+            break;
+          default:
+            // a constant pool of a newer format, let ASM decide
+            return true;
+        }
+      }
+      return false;
+    }
+    catch (ArrayIndexOutOfBoundsException e) {
+      return true;
+    }
+  }
+
+  private static boolean startsWithTimestamp(byte[] bytes, int start) {
+    for (int i = 0; i < timeStampFieldStartBytes.length; i++) {
+      if (bytes[start + i] != timeStampFieldStartBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+  }
+
   private static class TimestampFieldRemover extends ClassVisitor
   {
     private final boolean[] changed;
@@ -33,7 +33,12 @@ import com.intellij.java.language.psi.PsiFile
 import com.intellij.testFramework.TestLoggerFactory
 import org.consulo.compiler.impl.resourceCompiler.ResourceCompilerConfiguration
 import org.jetbrains.plugins.groovy.compiler.generator.GroovycStubGenerator
+import org.jetbrains.plugins.groovy.impl.compiler.GroovyClassToSourceMap
+import org.jetbrains.plugins.groovy.impl.runner.GroovycOSProcessHandler.OutputItem
 import org.jetbrains.plugins.groovy.lang.psi.GroovyFile
+
+import java.util.function.Supplier
+
 /**
  * @author peter
  */
@@ -790,6 +795,25 @@ string
     assertEmpty make()
   }
 
+  public void "test class to source map forgets classes removed from a recompiled source"() {
+    def foo = myFixture.addFileToProject('Foo.groovy', 'class Foo {}\nclass Helper {}').virtualFile
+    def map = GroovyClassToSourceMap.getInstance(project)
+    def files = { [foo] } as Supplier
+    def out = FileUtil.createTempDirectory('groovyOut', null)
+    def sources = [foo.path] as Set
+
+    assert map.getClassToSource(myModule, [] as Set, files).isEmpty()
+    map.update(myModule, sources, out.path, [new OutputItem(new File(out, 'Foo.class').path, foo.path),
+                                            new OutputItem(new File(out, 'Helper.class').path, foo.path)])
+    assert map.getClassToSource(myModule, [] as Set, files) == [Foo: foo.path, Helper: foo.path]
+
+    map.update(myModule, sources, out.path, [new OutputItem(new File(out, 'Foo.class').path, foo.path)])
+    assert map.getClassToSource(myModule, [] as Set, files) == [Foo: foo.path]
+
+    map.update(myModule, sources, out.path, [])
+    assert map.getClassToSource(myModule, [] as Set, files).isEmpty()
+  }
+
   public static class IdeaModeTest extends GroovyCompilerTest {
     @Override protected boolean useJps() { false }
   }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.compiler
+
+import junit.framework.TestCase
+import org.jetbrains.groovy.compiler.rt.GroovycArgsFile
+
+/**
+ * The arguments file must read back exactly what the IDE wrote
+ */
+public class GroovycArgsFileTest extends TestCase {
+
+  public void testRoundTrip() {
+    def sources = ['/project/src/a/A.groovy',
+                   '/project/src/a/B.groovy',
+                   '/project/src/ab/C.groovy',
+                   '/Root.groovy',
+                   'Relative.groovy',
+                   'C:\\project\\src\\D.groovy',
+                   'C:\\E.groovy']
+    def class2Src = ['a.A'        : '/project/src/a/A.groovy',
+                     'a.A$Inner'  : '/project/src/a/A.groovy',
+                     'a.AB'       : '/project/src/a/B.groovy',
+                     'ab.C'       : '/project/src/ab/C.groovy',
+                     'Root'       : '/Root.groovy',
+                     'NotCompiled': '/project/lib/NotCompiled.groovy']
+
+    def file = File.createTempFile('groovyc', '.args')
+    try {
+      GroovycArgsFile.write(file, sources, class2Src, ['p.Patcher'], 'UTF-8', '/out', '/final', null)
+      def args = GroovycArgsFile.read(file)
+
+      assertEquals(sources.collect { new File(it) }, args.sourceFiles)
+      assertEquals(class2Src.collectEntries { k, v -> [k, new File(v)] }, args.class2File)
+      assertEquals(['p.Patcher'], args.patchers)
+      assertEquals('UTF-8', args.encoding)
+      assertEquals('/out', args.outputPath)
+      assertEquals('/final', args.finalOutputPath)
+      assertNull(args.resultsFile)
+      assertTrue(args.sourceFiles[3].absolute)
+    }
+    finally {
+      file.delete()
+    }
+  }
+
+  public void testEmpty() {
+    def file = File.createTempFile('groovyc', '.args')
+    try {
+      GroovycArgsFile.write(file, [], [:], [], null, '/out', null, '/results')
+      def args = GroovycArgsFile.read(file)
+
+      assertTrue(args.sourceFiles.isEmpty())
+      assertTrue(args.class2File.isEmpty())
+      assertNull(args.encoding)
+      assertEquals('/results', args.resultsFile)
+    }
+    finally {
+      file.delete()
+    }
+  }
+}
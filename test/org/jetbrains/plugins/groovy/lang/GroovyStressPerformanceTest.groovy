@@ -26,6 +26,9 @@ import org.jetbrains.plugins.groovy.codeInspection.noReturnMethod.MissingReturnI
 import org.jetbrains.plugins.groovy.dsl.GroovyDslFileIndex
 import org.jetbrains.plugins.groovy.lang.psi.GroovyFile
 import org.jetbrains.plugins.groovy.lang.psi.api.statements.typedef.members.GrMethod
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowBuilderUtil
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowGraph
+import org.jetbrains.plugins.groovy.lang.psi.dataFlow.types.TypeInferenceHelper
 import org.jetbrains.plugins.groovy.lang.psi.impl.GroovyPsiManager
 
 /**
@@ -241,6 +244,22 @@ while (true) {
     IdeaTestUtil.startPerformanceTest("slow", 300, configureAndComplete(text)).cpuBound().usesAllCPUCores().assertTiming()
   }
 
+  public void testHugeStraightLineMethod() {
+    // at least a read and a write per line, like in generated migration scripts
+    def statements = (1..25000).collect { "  v${it % 10} = v${(it - 1) % 10} + 1" }.join('\n')
+    def vars = (0..9).collect { "def v$it = 0" }.join('\n')
+    def file = myFixture.configureByText('a.groovy', "def foo() {\n$vars\n$statements\n}") as GroovyFile
+    def block = (file.methods[0] as GrMethod).block
+    assert block.controlFlow.length >= 50000
+
+    IdeaTestUtil.startPerformanceTest("slow", 5000, {
+      def graph = ControlFlowGraph.create(block.controlFlow)
+      assert !graph.hasLoops()
+      assert ControlFlowBuilderUtil.getReadsWithoutPriorWrites(graph, false).length == 0
+      assert !TypeInferenceHelper.isTooComplexTooAnalyze(block)
+    } as ThrowableRunnable).cpuBound().assertTiming()
+  }
+
   ThrowableRunnable configureAndComplete(String text) {
     return {
       myFixture.configureByText 'a.groovy', text
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.controlFlow
+
+import com.intellij.java.language.psi.PsiElement
+import com.intellij.java.language.psi.PsiRecursiveElementVisitor
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase
+import org.jetbrains.plugins.groovy.GroovyFileType
+import org.jetbrains.plugins.groovy.codeInspection.utils.ControlFlowUtils
+import org.jetbrains.plugins.groovy.lang.psi.GroovyFile
+import org.jetbrains.plugins.groovy.lang.psi.api.statements.expressions.GrReferenceExpression
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowBuilderUtil
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.ControlFlowGraph
+import org.jetbrains.plugins.groovy.lang.psi.controlFlow.Instruction
+
+/**
+ * The compact graph must answer like the linear scans over the instruction array
+ */
+public class ControlFlowGraphTest extends LightCodeInsightFixtureTestCase {
+
+  public void testSameAsFlow() {
+    def file = myFixture.configureByText(GroovyFileType.GROOVY_FILE_TYPE, '''
+def a = 1
+def b
+if (a instanceof Integer) { b = a + 1 } else { b = "${a}" }
+try {
+  while (b) { b = b - 1; if (b == 2) break }
+}
+finally {
+  println b
+}
+[1, 2].each { b += it }
+switch (a) { case 1: b = 2; case 2: return b }
+''') as GroovyFile
+
+    Instruction[] flow = file.controlFlow
+    ControlFlowGraph graph = ControlFlowGraph.getGraph(file)
+    assertSame(flow, graph.flow)
+    assertEquals(ControlFlowBuilderUtil.postorder(flow) as List, graph.postorder as List)
+
+    for (Instruction instruction : flow) {
+      int num = instruction.num()
+      assertEquals(instruction.allSuccessors()*.num(), graph.successors[graph.successorStarts[num]..<graph.successorStarts[num + 1]])
+    }
+
+    file.accept(new PsiRecursiveElementVisitor() {
+      @Override
+      void visitElement(PsiElement element) {
+        if (element instanceof GrReferenceExpression) {
+          assertSame(ControlFlowUtils.findRWInstruction(element, flow), graph.findReadWriteInstruction(element))
+          assertEquals(ControlFlowUtils.findAllInstructions(element, flow), graph.findAllInstructions(element))
+          assertSame(ControlFlowUtils.findNearestInstruction(element, flow), graph.findNearestInstruction(element))
+        }
+        super.visitElement(element)
+      }
+    })
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.formatter
+
+import com.intellij.testFramework.IdeaTestUtil
+import com.intellij.util.ThrowableRunnable
+import org.jetbrains.plugins.groovy.GroovyFileType
+import org.jetbrains.plugins.groovy.codeStyle.GroovyCodeStyleSettings
+
+/**
+ * Reformatting of large generated DSL files, where most of the formatter's time goes to alignment groups
+ */
+class GroovyFormatterPerformanceTest extends GroovyFormatterTestCase {
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp()
+    groovySettings.ALIGN_MULTILINE_PARAMETERS = true
+    groovySettings.ALIGN_MULTILINE_PARAMETERS_IN_CALLS = true
+    myTempSettings.getCustomSettings(GroovyCodeStyleSettings).ALIGN_MULTILINE_LIST_OR_MAP = true
+    myTempSettings.getCustomSettings(GroovyCodeStyleSettings).ALIGN_NAMED_ARGS_IN_MAP = true
+  }
+
+  public void testLargeMapLiterals() {
+    def entries = (1..500).collect { "  key$it: 'value$it'," }.join('\n')
+    measureReformat((1..20).collect { "def map$it = [\n$entries\n    last: 0]" }.join('\n'), 20000)
+  }
+
+  public void testLargeListLiterals() {
+    def items = (1..500).collect { "  'item$it'," }.join('\n')
+    measureReformat((1..20).collect { "def list$it = [\n$items\n    'last']" }.join('\n'), 20000)
+  }
+
+  public void testLongParameterLists() {
+    def params = (1..200).collect { "int p$it" }.join(',\n      ')
+    def args = (1..200).collect { "$it" }.join(',\n      ')
+    measureReformat((1..20).collect { "def foo$it($params) {}\nfoo$it($args)" }.join('\n'), 20000)
+  }
+
+  private void measureReformat(String text, int time) {
+    IdeaTestUtil.startPerformanceTest("slow", time, {
+      myFixture.configureByText(GroovyFileType.GROOVY_FILE_TYPE, text)
+      doFormat(myFixture.file)
+    } as ThrowableRunnable).cpuBound().assertTiming()
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013-2026 consulo.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.plugins.groovy.lang.formatter
+
+import com.intellij.java.language.psi.codeStyle.CommonCodeStyleSettings
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.progress.EmptyProgressIndicator
+import org.jetbrains.plugins.groovy.GroovyFileType
+import org.jetbrains.plugins.groovy.impl.formatter.GroovyParallelReformatter
+
+import java.util.concurrent.Callable
+
+/**
+ * Formatting a file with the block tree built on the pool must give the same text as the usual reformat
+ */
+class GroovyParallelReformatterTest extends GroovyFormatterTestCase {
+
+  public void testClassesAndMethods() {
+    def body = (1..300).collect { "  def  field$it=$it\n    void method$it( int a ,int b){\nif(a>b){ println a }\n  }" }.join('\n')
+    def members = (1..20).collect { "class  Foo$it{\n$body\n}\n\n\n  def  bar$it( ){\n return   $it}" }
+    checkSameFormatting("package foo\nimport  java.util.List\n" + members.join('\n'))
+  }
+
+  public void testScriptWithLeadingWhitespace() {
+    def statements = (1..2000).collect { "  println(  $it )" }.join('\n')
+    checkSameFormatting("\n\n  $statements\n  class A{ def x=1 }\n$statements\n def foo(){ 1 }  \n")
+  }
+
+  public void testBracesEnforced() {
+    groovySettings.IF_BRACE_FORCE = CommonCodeStyleSettings.FORCE_BRACES_ALWAYS
+    checkSameFormatting("def foo(a){\nif (a) println a\nelse println 'no'\n}")
+  }
+
+  private void checkSameFormatting(String text) {
+    myFixture.configureByText(GroovyFileType.GROOVY_FILE_TYPE, text)
+    doFormat(myFixture.file)
+    def expected = myFixture.editor.document.text
+
+    def file = myFixture.configureByText(GroovyFileType.GROOVY_FILE_TYPE, text)
+    def reformatter = new GroovyParallelReformatter(project)
+    // the trees are built off the event dispatch thread, the files are formatted on it
+    def files = ApplicationManager.application.executeOnPooledThread({
+      reformatter.prepare([file], new EmptyProgressIndicator())
+    } as Callable).get()
+    assertEquals(1, reformatter.apply(files))
+    assertEquals(expected, myFixture.editor.document.text)
+  }
+}
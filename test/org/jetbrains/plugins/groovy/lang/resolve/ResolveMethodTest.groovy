@@ -770,6 +770,38 @@ print new B().f<caret>oo()
     assertInstanceOf(resolved.staticMethod, GrReflectedMethod)
   }
 
+  void testInheritedCategoryMethod() {
+    def ref = configureByText('''\
+class BaseCategory {
+  static String shout(String s) { s.toUpperCase() }
+}
+
+class StringCategory extends BaseCategory {
+  static String whisper(String s) { s.toLowerCase() }
+}
+
+use(StringCategory) {
+  print 'abc'.sh<caret>out()
+}
+''')
+
+    def resolved = ref.resolve()
+    assertInstanceOf(resolved, GrGdkMethod)
+    assertEquals 'BaseCategory', resolved.staticMethod.containingClass.name
+  }
+
+  void testDifferentlyBoundedTypeParameters() {
+    def ref = configureByText('''\
+def <T extends Number> void bar(T t) { t.first() }
+def <T extends List> void foo(T t) { t.fir<caret>st() }
+''')
+
+    // resolved first, so that a dispatch table keyed by the type's text would give its result to the other T
+    def numberRef = myFixture.file.findReferenceAt(myFixture.file.text.indexOf('first'))
+    assertNull(numberRef.resolve())
+    assertInstanceOf(ref.resolve(), GrGdkMethod)
+  }
+
   void testOnlyMixin() {
     def ref = configureByText("""
 class A {